@@ -15,6 +15,8 @@
  */
 package org.reaktivity.nukleus.http_cache.internal;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Random;
 
 import org.reaktivity.nukleus.Configuration;
@@ -25,11 +27,20 @@ public class HttpCacheConfiguration extends Configuration
 
     public static final IntPropertyDef HTTP_CACHE_CAPACITY;
     public static final IntPropertyDef HTTP_CACHE_SLOT_CAPACITY;
+    public static final IntPropertyDef HTTP_CACHE_SLOT_CLASSES;
     public static final IntPropertyDef HTTP_CACHE_MAXIMUM_REQUESTS;
+    public static final IntPropertyDef HTTP_CACHE_IDLE_REQUESTS;
     public static final IntPropertyDef HTTP_CACHE_ETAG_PREFIX;
     public static final IntPropertyDef HTTP_CACHE_ALLOWED_CACHE_PERCENTAGE;
     public static final IntPropertyDef HTTP_CACHE_PREFER_WAIT_MAXIMUM;
     public static final IntPropertyDef HTTP_CACHE_INITIAL_WINDOW_SIZE;
+    public static final LongPropertyDef HTTP_CACHE_DISK_CAPACITY;
+    public static final PropertyDef<String> HTTP_CACHE_DISK_PATH;
+    public static final PropertyDef<String> HTTP_CACHE_SNAPSHOT_PATH;
+    public static final IntPropertyDef HTTP_CACHE_SNAPSHOT_INTERVAL;
+    public static final IntPropertyDef HTTP_CACHE_EXPIRY_GRACE;
+    public static final IntPropertyDef HTTP_CACHE_STALE_IF_ERROR;
+    public static final IntPropertyDef HTTP_CACHE_REFRESH_AHEAD;
 
     private static final ConfigurationDef HTTP_CACHE_CONFIG;
 
@@ -38,11 +49,20 @@ public class HttpCacheConfiguration extends Configuration
         final ConfigurationDef config = new ConfigurationDef("nukleus.http_cache");
         HTTP_CACHE_CAPACITY = config.property("capacity", 1024 * 64 * 64);
         HTTP_CACHE_SLOT_CAPACITY = config.property("slot.capacity", 0x4000); // ALSO is max header size
+        HTTP_CACHE_SLOT_CLASSES = config.property("slot.classes", 1); // 4 gives 16KB, 4KB, 1KB and 256B slots
         HTTP_CACHE_MAXIMUM_REQUESTS = config.property("maximum.requests", 64 * 1024);
+        HTTP_CACHE_IDLE_REQUESTS = config.property("idle.requests", 1024); // request slot buffers kept after release
         HTTP_CACHE_ETAG_PREFIX = config.property("etag.prefix", new Random().nextInt(99999));
         HTTP_CACHE_ALLOWED_CACHE_PERCENTAGE = config.property("allowed.cache.percentage", 95);
         HTTP_CACHE_PREFER_WAIT_MAXIMUM = config.property("prefer.wait.maximum", Integer.MAX_VALUE);
         HTTP_CACHE_INITIAL_WINDOW_SIZE = config.property("initial.window.size", 6291456);
+        HTTP_CACHE_DISK_CAPACITY = config.property("disk.capacity", 0L); // 0 disables the disk tier
+        HTTP_CACHE_DISK_PATH = config.property("disk.path", "http-cache.disk");
+        HTTP_CACHE_SNAPSHOT_PATH = config.property("snapshot.path", ""); // empty disables snapshots
+        HTTP_CACHE_SNAPSHOT_INTERVAL = config.property("snapshot.interval", 60); // seconds
+        HTTP_CACHE_EXPIRY_GRACE = config.property("expiry.grace", 60); // seconds stale before purge
+        HTTP_CACHE_STALE_IF_ERROR = config.property("stale.if.error", 0); // seconds, unless in cache-control
+        HTTP_CACHE_REFRESH_AHEAD = config.property("refresh.ahead", 0); // percent of freshness lifetime, 0 disables
         HTTP_CACHE_CONFIG = config;
     }
 
@@ -62,6 +82,11 @@ public class HttpCacheConfiguration extends Configuration
         return HTTP_CACHE_SLOT_CAPACITY.getAsInt(this);
     }
 
+    public int cacheSlotClasses()
+    {
+        return HTTP_CACHE_SLOT_CLASSES.getAsInt(this);
+    }
+
     public int allowedCachePercentage()
     {
         return HTTP_CACHE_ALLOWED_CACHE_PERCENTAGE.getAsInt(this);
@@ -72,6 +97,16 @@ public class HttpCacheConfiguration extends Configuration
         return HTTP_CACHE_MAXIMUM_REQUESTS.getAsInt(this);
     }
 
+    public int idleRequests()
+    {
+        return HTTP_CACHE_IDLE_REQUESTS.getAsInt(this);
+    }
+
+    public int etagPrefix()
+    {
+        return HTTP_CACHE_ETAG_PREFIX.getAsInt(this);
+    }
+
     public int preferWaitMaximum()
     {
         return HTTP_CACHE_PREFER_WAIT_MAXIMUM.getAsInt(this);
@@ -81,4 +116,40 @@ public class HttpCacheConfiguration extends Configuration
     {
         return HTTP_CACHE_INITIAL_WINDOW_SIZE.getAsInt(this);
     }
+
+    public long diskCapacity()
+    {
+        return HTTP_CACHE_DISK_CAPACITY.getAsLong(this);
+    }
+
+    public Path diskPath()
+    {
+        return Paths.get(HTTP_CACHE_DISK_PATH.get(this));
+    }
+
+    public Path snapshotPath()
+    {
+        final String snapshotPath = HTTP_CACHE_SNAPSHOT_PATH.get(this);
+        return !snapshotPath.isEmpty() ? Paths.get(snapshotPath) : null;
+    }
+
+    public int snapshotInterval()
+    {
+        return HTTP_CACHE_SNAPSHOT_INTERVAL.getAsInt(this);
+    }
+
+    public int expiryGrace()
+    {
+        return HTTP_CACHE_EXPIRY_GRACE.getAsInt(this);
+    }
+
+    public int staleIfError()
+    {
+        return HTTP_CACHE_STALE_IF_ERROR.getAsInt(this);
+    }
+
+    public int refreshAhead()
+    {
+        return HTTP_CACHE_REFRESH_AHEAD.getAsInt(this);
+    }
 }
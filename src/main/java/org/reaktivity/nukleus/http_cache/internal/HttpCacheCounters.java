@@ -32,12 +32,31 @@ public class HttpCacheCounters
     public final LongSupplier responsesRetry;
     public final LongSupplier responsesNotModified;
     public final LongSupplier groupResponsesCacheable;
+    public final LongSupplier groupResponsesNotModified;
+    public final LongSupplier groupResponsesSegment;
     public final LongSupplier responsesCached;
+    public final LongSupplier responsesPartial;
     public final LongSupplier responsesPurged;
+    public final LongSupplier cacheEvictions;
+    public final LongSupplier cacheDemotions;
+    public final LongSupplier cacheExpiries;
+    public final LongSupplier cacheExpiriesDeferred;
+    public final LongSupplier snapshotWrites;
+    public final LongSupplier snapshotFailures;
+    public final LongSupplier snapshotEntriesRestored;
+    public final LongSupplier admissionsAccepted;
+    public final LongSupplier admissionsRejected;
+    public final LongSupplier admissionResets;
     public final LongSupplier responsesAbortedVary;
+    public final LongSupplier responsesStaleWhileRevalidate;
+    public final LongSupplier responsesStaleIfError;
+    public final LongSupplier refreshAheadRequests;
+    public final LongSupplier refreshAheadResponses;
+    public final LongSupplier refreshAheadFailures;
     public final LongSupplier promises;
     public final LongConsumer cacheEntries;
     public final LongConsumer requestGroups;
+    public final LongConsumer requestSlots;
 
     public HttpCacheCounters(
         Function<String, LongSupplier> supplyCounter,
@@ -52,13 +71,32 @@ public class HttpCacheCounters
         this.requestsRetry = supplyCounter.apply("http-cache.requests.retry");
         this.responses = supplyCounter.apply("http-cache.responses");
         this.groupResponsesCacheable = supplyCounter.apply("http-cache.group.responses.cacheable");
+        this.groupResponsesNotModified = supplyCounter.apply("http-cache.group.responses.not.modified");
+        this.groupResponsesSegment = supplyCounter.apply("http-cache.group.responses.segment");
         this.responsesRetry = supplyCounter.apply("http-cache.responses.retry");
         this.responsesNotModified = supplyCounter.apply("http-cache.responses.not.modified");
         this.responsesCached = supplyCounter.apply("http-cache.responses.cached");
+        this.responsesPartial = supplyCounter.apply("http-cache.responses.partial");
         this.responsesAbortedVary = supplyCounter.apply("http-cache.responses.aborted.vary");
+        this.responsesStaleWhileRevalidate = supplyCounter.apply("http-cache.responses.stale.while.revalidate");
+        this.responsesStaleIfError = supplyCounter.apply("http-cache.responses.stale.if.error");
+        this.refreshAheadRequests = supplyCounter.apply("http-cache.refresh.ahead.requests");
+        this.refreshAheadResponses = supplyCounter.apply("http-cache.refresh.ahead.responses");
+        this.refreshAheadFailures = supplyCounter.apply("http-cache.refresh.ahead.failures");
         this.responsesPurged = supplyCounter.apply("http-cache.responses.purge");
+        this.cacheEvictions = supplyCounter.apply("http-cache.cache.evictions");
+        this.cacheDemotions = supplyCounter.apply("http-cache.cache.demotions");
+        this.cacheExpiries = supplyCounter.apply("http-cache.cache.expiries");
+        this.cacheExpiriesDeferred = supplyCounter.apply("http-cache.cache.expiries.deferred");
+        this.snapshotWrites = supplyCounter.apply("http-cache.snapshot.writes");
+        this.snapshotFailures = supplyCounter.apply("http-cache.snapshot.failures");
+        this.snapshotEntriesRestored = supplyCounter.apply("http-cache.snapshot.entries.restored");
+        this.admissionsAccepted = supplyCounter.apply("http-cache.admissions.accepted");
+        this.admissionsRejected = supplyCounter.apply("http-cache.admissions.rejected");
+        this.admissionResets = supplyCounter.apply("http-cache.admission.resets");
         this.promises = supplyCounter.apply("http-cache.promises");
         this.cacheEntries = supplyAccumulator.apply("http-cache.cache.entries");
         this.requestGroups = supplyAccumulator.apply("http-cache.request.groups");
+        this.requestSlots = supplyAccumulator.apply("http-cache.request.slots");
     }
 }
@@ -0,0 +1,378 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.agrona.BitUtil.SIZE_OF_SHORT;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.agrona.DirectBuffer;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.String16FW;
+
+/*
+ * Cache-Control and Surrogate-Control parser over the raw header value bytes, recording the known
+ * directives as a bitset and their delta-seconds values as ints, so that parsing allocates nothing.
+ * Surrogate-Control max-age=<age>+<extension> also records the freshness extension.
+ */
+public final class CacheControlParser
+{
+    public static final int DIRECTIVE_NO_CACHE = 1 << 0;
+    public static final int DIRECTIVE_NO_STORE = 1 << 1;
+    public static final int DIRECTIVE_MAX_AGE = 1 << 2;
+    public static final int DIRECTIVE_S_MAXAGE = 1 << 3;
+    public static final int DIRECTIVE_PUBLIC = 1 << 4;
+    public static final int DIRECTIVE_PRIVATE = 1 << 5;
+    public static final int DIRECTIVE_MAX_STALE = 1 << 6;
+    public static final int DIRECTIVE_MIN_FRESH = 1 << 7;
+    public static final int DIRECTIVE_ONLY_IF_CACHED = 1 << 8;
+    public static final int DIRECTIVE_STALE_WHILE_REVALIDATE = 1 << 9;
+    public static final int DIRECTIVE_STALE_IF_ERROR = 1 << 10;
+    public static final int DIRECTIVE_X_PROTECTED = 1 << 11;
+
+    public static final int NO_VALUE = -1;
+
+    private static final byte[][] DIRECTIVE_NAMES =
+    {
+        CacheDirectives.NO_CACHE.getBytes(US_ASCII),
+        CacheDirectives.NO_STORE.getBytes(US_ASCII),
+        CacheDirectives.MAX_AGE.getBytes(US_ASCII),
+        CacheDirectives.S_MAXAGE.getBytes(US_ASCII),
+        CacheDirectives.PUBLIC.getBytes(US_ASCII),
+        CacheDirectives.PRIVATE.getBytes(US_ASCII),
+        CacheDirectives.MAX_STALE.getBytes(US_ASCII),
+        CacheDirectives.MIN_FRESH.getBytes(US_ASCII),
+        CacheDirectives.ONLY_IF_CACHED.getBytes(US_ASCII),
+        "stale-while-revalidate".getBytes(US_ASCII),
+        CacheDirectives.STALE_IF_ERROR.getBytes(US_ASCII),
+        "x-protected".getBytes(US_ASCII)
+    };
+
+    private static final int DIRECTIVE_COUNT = DIRECTIVE_NAMES.length;
+    private static final int NO_DIRECTIVE = -1;
+
+    private final int[] values = new int[DIRECTIVE_COUNT];
+    private final int[] ordinals = new int[DIRECTIVE_COUNT];
+    private final Consumer<HttpHeaderFW> scanHeader = this::scanIfMatches;
+
+    private Predicate<? super HttpHeaderFW> headerFilter;
+
+    private int directives;
+    private int ordinal;
+    private int freshnessExtension;
+
+    /*
+     * Directives of every matching header are combined, as if the header values were a single
+     * comma-separated list in the order they appear.
+     */
+    public CacheControlParser parse(
+        Array32FW<HttpHeaderFW> headers,
+        Predicate<? super HttpHeaderFW> filter)
+    {
+        reset();
+        headerFilter = filter;
+        headers.forEach(scanHeader);
+        headerFilter = null;
+        return this;
+    }
+
+    public CacheControlParser parse(
+        HttpHeaderFW header)
+    {
+        return header != null ? parse(header.value()) : reset();
+    }
+
+    public CacheControlParser parse(
+        String16FW value)
+    {
+        return parse(value.buffer(), value.offset() + SIZE_OF_SHORT, value.limit());
+    }
+
+    public CacheControlParser parse(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        reset();
+        scan(buffer, offset, limit);
+        return this;
+    }
+
+    public boolean contains(
+        int directive)
+    {
+        return (directives & directive) != 0;
+    }
+
+    public int directives()
+    {
+        return directives;
+    }
+
+    /*
+     * Delta-seconds value of the directive, or NO_VALUE when absent or given without a numeric value.
+     */
+    public int value(
+        int directive)
+    {
+        return contains(directive) ? values[Integer.numberOfTrailingZeros(directive)] : NO_VALUE;
+    }
+
+    public int maxAge()
+    {
+        return value(DIRECTIVE_MAX_AGE);
+    }
+
+    public int sMaxAge()
+    {
+        return value(DIRECTIVE_S_MAXAGE);
+    }
+
+    public int maxStale()
+    {
+        return value(DIRECTIVE_MAX_STALE);
+    }
+
+    public int minFresh()
+    {
+        return value(DIRECTIVE_MIN_FRESH);
+    }
+
+    public int staleWhileRevalidate()
+    {
+        return value(DIRECTIVE_STALE_WHILE_REVALIDATE);
+    }
+
+    public int staleIfError()
+    {
+        return value(DIRECTIVE_STALE_IF_ERROR);
+    }
+
+    public int freshnessExtension()
+    {
+        return freshnessExtension;
+    }
+
+    /*
+     * Whether any of the directives appears before all of the other directives, for rules where the
+     * first listed directive decides.
+     */
+    public boolean precedes(
+        int directives,
+        int otherDirectives)
+    {
+        return firstOrdinal(directives) < firstOrdinal(otherDirectives);
+    }
+
+    private void scanIfMatches(
+        HttpHeaderFW header)
+    {
+        if (headerFilter.test(header))
+        {
+            final String16FW value = header.value();
+            scan(value.buffer(), value.offset() + SIZE_OF_SHORT, value.limit());
+        }
+    }
+
+    private void scan(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int index = offset;
+        while (index < limit)
+        {
+            index = skipSeparators(buffer, index, limit);
+
+            final int nameStart = index;
+            while (index < limit && isTokenChar(buffer.getByte(index)))
+            {
+                index++;
+            }
+            final int directive = directive(buffer, nameStart, index);
+
+            index = skipWhitespace(buffer, index, limit);
+
+            int value = NO_VALUE;
+            int extension = NO_VALUE;
+            if (index < limit && buffer.getByte(index) == '=')
+            {
+                index = skipWhitespace(buffer, index + 1, limit);
+
+                final boolean quoted = index < limit && buffer.getByte(index) == '"';
+                final int digitsStart = quoted ? index + 1 : index;
+
+                int digitsEnd = digitsStart;
+                value = 0;
+                while (digitsEnd < limit && isDigit(buffer.getByte(digitsEnd)))
+                {
+                    value = appendDigit(value, buffer.getByte(digitsEnd++));
+                }
+
+                if (digitsEnd == digitsStart)
+                {
+                    value = NO_VALUE;
+                }
+                else if (digitsEnd < limit && buffer.getByte(digitsEnd) == '+')
+                {
+                    final int extensionStart = ++digitsEnd;
+                    extension = 0;
+                    while (digitsEnd < limit && isDigit(buffer.getByte(digitsEnd)))
+                    {
+                        extension = appendDigit(extension, buffer.getByte(digitsEnd++));
+                    }
+                    extension = digitsEnd != extensionStart ? extension : NO_VALUE;
+                }
+
+                index = quoted ? skipQuotedString(buffer, index + 1, limit) : digitsEnd;
+            }
+
+            if (directive != NO_DIRECTIVE && (directives & (1 << directive)) == 0)
+            {
+                directives |= 1 << directive;
+                values[directive] = value;
+                ordinals[directive] = ordinal;
+                if ((1 << directive) == DIRECTIVE_MAX_AGE)
+                {
+                    freshnessExtension = extension;
+                }
+            }
+            ordinal++;
+
+            while (index < limit && buffer.getByte(index) != ',')
+            {
+                index++;
+            }
+        }
+    }
+
+    private CacheControlParser reset()
+    {
+        directives = 0;
+        ordinal = 0;
+        freshnessExtension = NO_VALUE;
+        Arrays.fill(values, NO_VALUE);
+        return this;
+    }
+
+    private int firstOrdinal(
+        int mask)
+    {
+        int first = Integer.MAX_VALUE;
+        for (int present = directives & mask; present != 0; present &= present - 1)
+        {
+            first = Math.min(first, ordinals[Integer.numberOfTrailingZeros(present)]);
+        }
+        return first;
+    }
+
+    private static int directive(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int directive = NO_DIRECTIVE;
+        for (int candidate = 0; candidate < DIRECTIVE_COUNT && directive == NO_DIRECTIVE; candidate++)
+        {
+            if (equalsIgnoreCase(buffer, offset, limit, DIRECTIVE_NAMES[candidate]))
+            {
+                directive = candidate;
+            }
+        }
+        return directive;
+    }
+
+    private static boolean equalsIgnoreCase(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] name)
+    {
+        boolean equals = limit - offset == name.length;
+        for (int index = 0; index < name.length && equals; index++)
+        {
+            final int b = buffer.getByte(offset + index);
+            equals = (b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b) == name[index];
+        }
+        return equals;
+    }
+
+    private static int skipQuotedString(
+        DirectBuffer buffer,
+        int index,
+        int limit)
+    {
+        while (index < limit && buffer.getByte(index) != '"')
+        {
+            index += buffer.getByte(index) == '\\' ? 2 : 1;
+        }
+        return Math.min(index + 1, limit);
+    }
+
+    private static int skipSeparators(
+        DirectBuffer buffer,
+        int index,
+        int limit)
+    {
+        while (index < limit && (buffer.getByte(index) == ',' || isWhitespace(buffer.getByte(index))))
+        {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipWhitespace(
+        DirectBuffer buffer,
+        int index,
+        int limit)
+    {
+        while (index < limit && isWhitespace(buffer.getByte(index)))
+        {
+            index++;
+        }
+        return index;
+    }
+
+    private static int appendDigit(
+        int value,
+        byte digit)
+    {
+        final int decimal = digit - '0';
+        return value > (Integer.MAX_VALUE - decimal) / 10 ? Integer.MAX_VALUE : value * 10 + decimal;
+    }
+
+    private static boolean isTokenChar(
+        byte b)
+    {
+        return b > ' ' && b != ',' && b != '=' && b != '"' && b != 0x7f;
+    }
+
+    private static boolean isDigit(
+        byte b)
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(
+        byte b)
+    {
+        return b == ' ' || b == '\t';
+    }
+}
@@ -15,11 +15,6 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 
-import java.util.function.Predicate;
-
-import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders;
-import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
-
 public final class CacheDirectives
 {
 
@@ -33,16 +28,10 @@ public final class CacheDirectives
     public static final String MAX_STALE = "max-stale";
     public static final String MIN_FRESH = "min-fresh";
     public static final String MAX_AGE_0 = "max-age=0";
+    public static final String STALE_IF_ERROR = "stale-if-error";
 
     private CacheDirectives()
     {
         // Utility class
     }
-
-    public static final Predicate<? super HttpHeaderFW> IS_ONLY_IF_CACHED = h ->
-    {
-        String name = h.name().asString();
-        String value = h.value().asString();
-        return name.equals(HttpHeaders.CACHE_CONTROL) && value.contains(ONLY_IF_CACHED);
-    };
 }
@@ -15,43 +15,47 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.Collections.unmodifiableList;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MAX_AGE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_MAX_AGE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_NO_CACHE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_NO_STORE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_PUBLIC;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_S_MAXAGE;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MAX_AGE_0;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.NO_CACHE;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.NO_STORE;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.PUBLIC;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.S_MAXAGE;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CACHE_CONTROL;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.METHOD;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.STATUS;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.SURROGATE_CONTROL;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.CACHE_CONTROL_NAME;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_CACHE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.SURROGATE_CONTROL_NAME;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.contains;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersIndex;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
-import org.reaktivity.nukleus.http_cache.internal.types.String16FW;
-import org.reaktivity.nukleus.http_cache.internal.types.String8FW;
 
 public final class CacheUtils
 {
     public static final List<String> CACHEABLE_BY_DEFAULT_STATUS_CODES = unmodifiableList(
             asList("200", "203", "204", "206", "300", "301", "404", "405", "410", "414", "501"));
-    public static final List<String16FW> SAFE_METHOD = unmodifiableList(
-        asList(new String16FW("GET"), new String16FW("HEAD"), new String16FW("OPTIONS"),
-            new String16FW("TRACE")));
+    public static final byte[][] SAFE_METHODS =
+    {
+        "GET".getBytes(US_ASCII), "HEAD".getBytes(US_ASCII), "OPTIONS".getBytes(US_ASCII), "TRACE".getBytes(US_ASCII)
+    };
     public static final String RESPONSE_IS_STALE = "110 - \"Response is Stale\"";
-    public static final String8FW METHOD_NAME = new String8FW(METHOD);
+    public static final String REVALIDATION_FAILED = "111 - \"Revalidation Failed\"";
+
+    private static final byte[] MAX_AGE_0_BYTES = MAX_AGE_0.getBytes(US_ASCII);
+    private static final byte[] PRIVATE_BYTES = CacheDirectives.PRIVATE.getBytes(US_ASCII);
 
     private CacheUtils()
     {
@@ -59,41 +63,40 @@ public final class CacheUtils
     }
 
     public static boolean isMethodUnsafe(
-        Array32FW<HttpHeaderFW> headers)
+        HttpHeadersIndex headers)
     {
-        return headers.anyMatch(h -> METHOD_NAME.equals(h.name()) && !SAFE_METHOD.contains(h.value()));
+        boolean unsafe = headers.has(HttpHeadersIndex.METHOD);
+        for (int i = 0; i < SAFE_METHODS.length && unsafe; i++)
+        {
+            unsafe = !headers.equals(HttpHeadersIndex.METHOD, SAFE_METHODS[i]);
+        }
+        return unsafe;
     }
 
     public static boolean hasMaxAgeZero(
         Array32FW<HttpHeaderFW> headers)
     {
-        return headers.anyMatch(h ->
-        {
-            final String name = h.name().asString();
-            final String value = h.value().asString();
-            return CACHE_CONTROL.equals(name) && value.contains(MAX_AGE_0);
-        });
+        return headers.anyMatch(h -> CACHE_CONTROL_NAME.equals(h.name()) && contains(h.value(), MAX_AGE_0_BYTES));
     }
 
     public static boolean isCacheableResponse(
-        Array32FW<HttpHeaderFW> response)
+        Array32FW<HttpHeaderFW> response,
+        CacheControlParser cacheControl)
     {
-        if (response.anyMatch(h -> CACHE_CONTROL.equals(h.name().asString()) &&
-                              h.value().asString().contains(CacheDirectives.PRIVATE)) ||
-            response.anyMatch(h -> SURROGATE_CONTROL.equals(h.name().asString()) &&
-                              h.value().asString().contains(MAX_AGE_0)))
+        if (response.anyMatch(h -> CACHE_CONTROL_NAME.equals(h.name()) && contains(h.value(), PRIVATE_BYTES)) ||
+            response.anyMatch(h -> SURROGATE_CONTROL_NAME.equals(h.name()) && contains(h.value(), MAX_AGE_0_BYTES)))
         {
             return false;
         }
 
-        return isPrivatelyCacheable(response);
+        return isPrivatelyCacheable(response, cacheControl);
     }
 
     public static boolean isPrivatelyCacheable(
-        Array32FW<HttpHeaderFW> response)
+        Array32FW<HttpHeaderFW> response,
+        CacheControlParser cacheControl)
     {
-        // TODO force passing of CacheControl as FW
-        boolean isCacheableByCacheControl = isCacheControlCacheable(response);
+        boolean isCacheableByCacheControl = isCacheControlCacheable(response, cacheControl);
         boolean isCacheableByStatusCode = response.anyMatch(h ->
         {
             final String name = h.name().asString();
@@ -107,33 +110,16 @@ public final class CacheUtils
         return isCacheableByCacheControl && isCacheableByStatusCode;
     }
 
-    public static Boolean isCacheControlCacheable(
-        Array32FW<HttpHeaderFW> response)
+    /*
+     * The first of no-store, no-cache, public, max-age or s-maxage listed decides.
+     */
+    public static boolean isCacheControlCacheable(
+        Array32FW<HttpHeaderFW> response,
+        CacheControlParser cacheControl)
     {
-        String cacheControl = getHeader(response, HttpHeaders.CACHE_CONTROL);
-        boolean isCacheable = true;
-        if (cacheControl != null)
-        {
-            CacheControl parser = new CacheControl().parse(cacheControl);
-            loop:
-            for (Map.Entry<String, String> directive : parser.getValues().entrySet())
-            {
-                switch (directive.getKey())
-                {
-                case NO_STORE:
-                case NO_CACHE:
-                    isCacheable = false;
-                    break loop;
-                case PUBLIC:
-                case MAX_AGE:
-                case S_MAXAGE:
-                    break loop;
-                default:
-                    break;
-                }
-            }
-        }
-        return isCacheable;
+        cacheControl.parse(response, HAS_CACHE_CONTROL);
+        return !cacheControl.precedes(DIRECTIVE_NO_STORE | DIRECTIVE_NO_CACHE,
+                                      DIRECTIVE_PUBLIC | DIRECTIVE_MAX_AGE | DIRECTIVE_S_MAXAGE);
     }
 
     public static boolean sameAuthorizationScope(
@@ -157,6 +143,13 @@ public final class CacheUtils
             return false;
         }
 
+        return sameAuthorization(request, cachedRequest);
+    }
+
+    public static boolean sameAuthorization(
+        Array32FW<HttpHeaderFW> request,
+        Array32FW<HttpHeaderFW> cachedRequest)
+    {
         final String cachedAuthorizationHeader = getHeader(cachedRequest, "authorization");
         final String requestAuthorizationHeader = getHeader(request, "authorization");
 
@@ -248,4 +241,22 @@ public final class CacheUtils
         return Arrays.stream(ifMatch.split(",")).anyMatch(t -> etag.equals(t.trim()));
     }
 
+    public static boolean isMatchByEtag(
+        HttpHeadersIndex requestHeaders,
+        String etag)
+    {
+        return etag != null && requestHeaders.containsElement(HttpHeadersIndex.IF_NONE_MATCH, etag);
+    }
+
+    /*
+     * If-Modified-Since (RFC 7232) is only evaluated when the request carries no If-None-Match.
+     */
+    public static boolean isMatchByLastModified(
+        HttpHeadersIndex requestHeaders,
+        DefaultCacheEntry cacheEntry)
+    {
+        return !requestHeaders.has(HttpHeadersIndex.IF_NONE_MATCH) &&
+               cacheEntry.isNotModifiedSince(requestHeaders.dateValue(HttpHeadersIndex.IF_MODIFIED_SINCE));
+    }
+
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+/*
+ * Circular list of cache entries swept by an eviction hand, new entries are linked just behind the hand.
+ * Each entry is linked into at most one ring at a time.
+ */
+final class ClockRing
+{
+    DefaultCacheEntry hand;
+    int size;
+
+    void advance()
+    {
+        hand = hand.clockNext;
+    }
+
+    void link(
+        DefaultCacheEntry entry)
+    {
+        assert entry.clockRing == null;
+
+        if (hand == null)
+        {
+            entry.clockNext = entry;
+            entry.clockPrev = entry;
+            hand = entry;
+        }
+        else
+        {
+            final DefaultCacheEntry tail = hand.clockPrev;
+            entry.clockNext = hand;
+            entry.clockPrev = tail;
+            tail.clockNext = entry;
+            hand.clockPrev = entry;
+        }
+        entry.clockRing = this;
+        size++;
+    }
+
+    void unlink(
+        DefaultCacheEntry entry)
+    {
+        assert entry.clockRing == this;
+
+        if (entry.clockNext == entry)
+        {
+            hand = null;
+        }
+        else
+        {
+            entry.clockPrev.clockNext = entry.clockNext;
+            entry.clockNext.clockPrev = entry.clockPrev;
+            if (hand == entry)
+            {
+                hand = entry.clockNext;
+            }
+        }
+        entry.clockNext = null;
+        entry.clockPrev = null;
+        entry.clockRing = null;
+        size--;
+    }
+}
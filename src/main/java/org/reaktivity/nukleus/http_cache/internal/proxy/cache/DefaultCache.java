@@ -15,39 +15,53 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MAX_AGE_0;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.NO_STORE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.hasMaxAgeZero;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.isMatchByEtag;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry.NUM_OF_HEADER_SLOTS;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpStatus.NOT_MODIFIED_304;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpStatus.OK_200;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader.isPreferWait;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader.isPreferenceApplied;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CACHE_CONTROL;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.ETAG;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.LINK;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.METHOD;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.PREFERENCE_APPLIED;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.STATUS;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.TRANSFER_ENCODING;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.hasStatusCode;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_CACHE_CONTROL;
 
 import java.net.URI;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
 import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.agrona.DeadlineTimerWheel;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Int2ObjectHashMap;
-import org.reaktivity.nukleus.buffer.BufferPool;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http_cache.internal.HttpCacheCounters;
 import org.reaktivity.nukleus.http_cache.internal.stream.HttpCacheProxyFactory;
 import org.reaktivity.nukleus.http_cache.internal.stream.HttpProxyCacheableRequestGroup;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.CoarseClock;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.CountingBufferPool;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersIndex;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.MappedSlab;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RequestKeyHasher;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.SizedBufferPool;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.VariantHasher;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.Writer;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
@@ -56,39 +70,84 @@ import org.reaktivity.nukleus.route.RouteManager;
 
 public class DefaultCache
 {
+    private static final int MINIMUM_SLOTS_PER_ENTRY = 1 + NUM_OF_HEADER_SLOTS + 1; // request, response headers, data
+
+    static final long NO_TIMER = -1L;
+
+    private static final long EXPIRY_TICK_RESOLUTION = 1024L; // millis
+    private static final int EXPIRY_TICKS_PER_WHEEL = 512;
+    private static final int EXPIRY_LIMIT = 64;
+    private static final int REFRESH_AHEAD_FREQUENCY = 4;
+
     private static final Pattern LINK_URL_PATTERN =
         Pattern.compile(
             "((<(?<scheme>https?):/)?/?(?<hostname>[^:/\\s]+)(?<port>:(\\d+))?(?<path>[\\w\\-.]*[^#?\\s]+).*>;" +
             ".*(rel=\"(collection|items)\"))");
 
+    private static final byte[] GET_BYTES = HttpMethods.GET.getBytes(US_ASCII);
+    private static final byte[] HEAD_BYTES = HttpMethods.HEAD.getBytes(US_ASCII);
+    private static final byte[] NO_CACHE_BYTES = CacheDirectives.NO_CACHE.getBytes(US_ASCII);
+    private static final byte[] NO_STORE_BYTES = NO_STORE.getBytes(US_ASCII);
+    private static final byte[] MAX_AGE_0_BYTES = MAX_AGE_0.getBytes(US_ASCII);
+
     final Array32FW<HttpHeaderFW> cachedResponseHeadersRO = new HttpBeginExFW().headers();
     final Array32FW<HttpHeaderFW> requestHeadersRO = new HttpBeginExFW().headers();
 
-    final CacheControl responseCacheControl = new CacheControl();
-    final CacheControl cachedRequestCacheControl = new CacheControl();
+    final CacheControlParser responseCacheControl = new CacheControlParser();
+    final CacheControlParser cachedRequestCacheControl = new CacheControlParser();
+    final CacheControlParser surrogateControl = new CacheControlParser();
+
+    final MutableDirectBuffer headersBuffer;
+    final CoarseClock clock;
 
-    private final BufferPool cachedRequestBufferPool;
-    private final BufferPool cachedResponseBufferPool;
-    private final BufferPool cacheBufferPool;
+    private final SizedBufferPool cachedRequestBufferPool;
+    private final SizedBufferPool cachedResponseBufferPool;
+    private final SizedBufferPool cacheBufferPool;
+    private final SizedBufferPool diskRequestBufferPool;
+    private final SizedBufferPool diskResponseBufferPool;
+    private final MappedSlab diskBufferPool;
 
     private final Writer writer;
-    private final Int2ObjectHashMap<DefaultCacheEntry> cachedEntriesByRequestHash;
-    private final Int2ObjectHashMap<Int2ObjectHashMap<DefaultCacheEntry>> cachedEntriesByRequestHashWithoutQuery;
+    private final VariantHasher variantHasher = new VariantHasher();
+    private final Long2ObjectHashMap<DefaultCacheEntry> cachedEntriesByRequestHash;
+    private final Int2ObjectHashMap<Long2ObjectHashMap<DefaultCacheEntry>> cachedEntriesByRequestHashWithoutQuery;
+    private final Long2ObjectHashMap<Long2ObjectHashMap<DefaultCacheEntry>> cachedEntriesByPrimaryHash;
+    private final Long2ObjectHashMap<String> varyByPrimaryHash;
 
     private final HttpCacheCounters counters;
     private final int allowedSlots;
+    private final int allowedDataSlots;
+    private final FrequencySketch frequencySketch;
+    private final ClockRing memoryRing;
+    private final ClockRing diskRing;
+    private final DeadlineTimerWheel expiryWheel;
+    private final Long2ObjectHashMap<DefaultCacheEntry> cachedEntriesByExpiryTimerId;
+    private final List<DefaultCacheEntry> deferredExpiries;
+    private final DeadlineTimerWheel.TimerHandler onExpiryTimer;
+    private final long expiryGrace;
+    private final int staleIfError;
+    private final int refreshAhead;
+    private final int etagPrefix;
+
+    private LongPredicate isExpiryPending;
 
     public DefaultCache(
         RouteManager router,
         MutableDirectBuffer writeBuffer,
-        BufferPool cacheBufferPool,
+        SizedBufferPool cacheBufferPool,
+        MappedSlab diskBufferPool,
         HttpCacheCounters counters,
+        CoarseClock clock,
         ToIntFunction<String> supplyTypeId,
         int allowedCachePercentage,
-        int cacheCapacity)
+        long expiryGrace,
+        int staleIfError,
+        int refreshAhead,
+        int etagPrefix)
     {
         assert allowedCachePercentage >= 0 && allowedCachePercentage <= 100;
         this.cacheBufferPool = cacheBufferPool;
+        this.headersBuffer = new UnsafeBuffer(new byte[cacheBufferPool.slotCapacity()]);
         this.writer = new Writer(router, supplyTypeId, writeBuffer);
         this.cachedRequestBufferPool = new CountingBufferPool(
                 cacheBufferPool,
@@ -98,65 +157,200 @@ public class DefaultCache
                 cacheBufferPool.duplicate(),
                 counters.supplyCounter.apply("http-cache.cached.response.acquires"),
                 counters.supplyCounter.apply("http-cache.cached.response.releases"));
-        this.cachedEntriesByRequestHash = new Int2ObjectHashMap<>();
+        this.cachedEntriesByRequestHash = new Long2ObjectHashMap<>();
         this.cachedEntriesByRequestHashWithoutQuery = new Int2ObjectHashMap<>();
+        this.cachedEntriesByPrimaryHash = new Long2ObjectHashMap<>();
+        this.varyByPrimaryHash = new Long2ObjectHashMap<>();
         this.counters = counters;
-        int totalSlots = cacheCapacity / cacheBufferPool.slotCapacity();
-        this.allowedSlots = (totalSlots * allowedCachePercentage) / 100;
+        this.clock = clock;
+        this.allowedSlots = (cacheBufferPool.totalSlots(0) * allowedCachePercentage) / 100;
+        this.allowedDataSlots = (cacheBufferPool.totalSlots(cacheBufferPool.slotCapacity()) * allowedCachePercentage) / 100;
+        this.frequencySketch = new FrequencySketch(allowedSlots, counters.admissionResets);
+        this.memoryRing = new ClockRing();
+        this.diskRing = new ClockRing();
+        this.diskBufferPool = diskBufferPool;
+        this.diskRequestBufferPool = diskBufferPool != null ? diskBufferPool.duplicate() : null;
+        this.diskResponseBufferPool = diskBufferPool != null ? diskBufferPool.duplicate() : null;
+        this.expiryWheel = new DeadlineTimerWheel(TimeUnit.MILLISECONDS, clock.millis(),
+            EXPIRY_TICK_RESOLUTION, EXPIRY_TICKS_PER_WHEEL);
+        this.cachedEntriesByExpiryTimerId = new Long2ObjectHashMap<>();
+        this.deferredExpiries = new ArrayList<>();
+        this.onExpiryTimer = this::onExpiryTimer;
+        this.expiryGrace = expiryGrace;
+        this.staleIfError = staleIfError;
+        this.refreshAhead = refreshAhead;
+        this.etagPrefix = etagPrefix;
     }
 
-    public BufferPool getResponsePool()
+    public DefaultCacheEntry get(
+        long requestHash)
     {
-        return cachedResponseBufferPool;
+        return cachedEntriesByRequestHash.get(requestHash);
     }
 
-    public DefaultCacheEntry get(
-        int requestHash)
+    Collection<DefaultCacheEntry> entries()
     {
-        return cachedEntriesByRequestHash.get(requestHash);
+        return cachedEntriesByRequestHash.values();
+    }
+
+    /*
+     * Each response that varies by request headers is stored as a separate variant of the primary
+     * request hash, keyed by the normalized values of the request headers named in its Vary header.
+     * When no variant has exactly those values, a stored variant whose request shares an element with
+     * each varying request header still serves the request, e.g. accept-encoding gzip and gzip, br.
+     */
+    public long variantHash(
+        long primaryHash,
+        Array32FW<HttpHeaderFW> requestHeaders)
+    {
+        final String varyBy = varyByPrimaryHash.get(primaryHash);
+        long variantHash = primaryHash;
+        if (varyBy != null)
+        {
+            variantHash = variantHasher.variantHash(primaryHash, varyBy, requestHeaders);
+            if (!cachedEntriesByRequestHash.containsKey(variantHash))
+            {
+                variantHash = matchVariantHash(primaryHash, variantHash, requestHeaders);
+            }
+        }
+        return variantHash;
     }
 
     public DefaultCacheEntry supply(
-        int requestHash,
+        long requestHash,
+        long primaryHash,
         short authScope,
-        String requestURL)
+        int requestHashWithoutQuery)
     {
-        final int requestHashWithoutQuery = generateRequestHashWithoutQuery(requestURL);
-        Int2ObjectHashMap<DefaultCacheEntry> cachedEntriesByRequestHashFromWithoutQueryList =
-            cachedEntriesByRequestHashWithoutQuery.computeIfAbsent(requestHashWithoutQuery, l -> new Int2ObjectHashMap<>());
+        Long2ObjectHashMap<DefaultCacheEntry> cachedEntriesByRequestHashFromWithoutQueryList =
+            cachedEntriesByRequestHashWithoutQuery.computeIfAbsent(requestHashWithoutQuery, l -> new Long2ObjectHashMap<>());
+        Long2ObjectHashMap<DefaultCacheEntry> cachedEntriesByVariantHash =
+            cachedEntriesByPrimaryHash.computeIfAbsent(primaryHash, l -> new Long2ObjectHashMap<>());
 
-        DefaultCacheEntry cacheEntry = computeCacheEntryIfAbsent(requestHash, authScope, requestHashWithoutQuery);
+        DefaultCacheEntry cacheEntry = computeCacheEntryIfAbsent(requestHash, primaryHash, authScope, requestHashWithoutQuery);
+        if (cacheEntry.clockRing == diskRing)
+        {
+            diskRing.unlink(cacheEntry);
+            cacheEntry.reset(cachedRequestBufferPool, cachedResponseBufferPool);
+            memoryRing.link(cacheEntry);
+        }
         cachedEntriesByRequestHashFromWithoutQueryList.put(requestHash, cacheEntry);
+        cachedEntriesByVariantHash.put(requestHash, cacheEntry);
         cachedEntriesByRequestHash.put(requestHash, cacheEntry);
+        cacheEntry.referenced = true;
         return cacheEntry;
     }
 
-    private int generateRequestHashWithoutQuery(
-        String requestURL)
+    public boolean matchCacheableRequest(
+        HttpHeadersIndex requestHeaders,
+        short authScope,
+        long requestHash)
     {
-        final URI requestURI = URI.create(requestURL);
-        return String.format("%s://%s%s",
-                             requestURI.getScheme(),
-                             requestURI.getAuthority(),
-                             requestURI.getPath()).hashCode();
+        final DefaultCacheEntry cacheEntry = cachedEntriesByRequestHash.get(requestHash);
+        final Array32FW<HttpHeaderFW> headers = requestHeaders.headers();
+
+        final boolean matched = satisfiedByCache(requestHeaders) &&
+                                cacheEntry != null &&
+                                cacheEntry.matchesRequestKey(headers) &&
+                                !cacheEntry.isSparse() &&
+                                (cacheEntry.etag() != null || cacheEntry.isResponseCompleted()) &&
+                                cacheEntry.canServeRequest(headers, authScope);
+
+        if (matched)
+        {
+            cacheEntry.referenced = true;
+        }
+
+        return matched;
     }
 
+    public boolean matchSegmentRequest(
+        HttpHeadersIndex requestHeaders,
+        short authScope,
+        long requestHash)
+    {
+        final DefaultCacheEntry cacheEntry = cachedEntriesByRequestHash.get(requestHash);
+        final Array32FW<HttpHeaderFW> headers = requestHeaders.headers();
+
+        final boolean matched = satisfiedByCache(requestHeaders) &&
+                                cacheEntry != null &&
+                                cacheEntry.isSparse() &&
+                                cacheEntry.matchesRequestKey(headers) &&
+                                cacheEntry.canServeRequest(headers, authScope);
 
-    public boolean matchCacheableRequest(
-        Array32FW<HttpHeaderFW> requestHeaders,
+        if (matched)
+        {
+            cacheEntry.referenced = true;
+        }
+
+        return matched;
+    }
+
+    public boolean matchStaleWhileRevalidateRequest(
+        HttpHeadersIndex requestHeaders,
         short authScope,
-        int requestHash)
+        long requestHash)
+    {
+        final DefaultCacheEntry cacheEntry = cachedEntriesByRequestHash.get(requestHash);
+        final Array32FW<HttpHeaderFW> headers = requestHeaders.headers();
+
+        final boolean matched = satisfiedByCache(requestHeaders) &&
+                                !isPreferWait(requestHeaders) &&
+                                cacheEntry != null &&
+                                cacheEntry.matchesRequestKey(headers) &&
+                                cacheEntry.canServeStaleRequest(headers, authScope);
+
+        if (matched)
+        {
+            cacheEntry.referenced = true;
+        }
+
+        return matched;
+    }
+
+    /*
+     * Refresh-ahead of frequently requested entries, revalidated once their remaining freshness falls
+     * within the configured percentage of their freshness lifetime, so they do not go stale under load.
+     */
+    public boolean matchRefreshAheadRequest(
+        Array32FW<HttpHeaderFW> requestHeaders,
+        long requestHash)
     {
         final DefaultCacheEntry cacheEntry = cachedEntriesByRequestHash.get(requestHash);
 
-        return satisfiedByCache(requestHeaders) &&
+        return refreshAhead > 0 &&
                cacheEntry != null &&
-               (cacheEntry.etag() != null || cacheEntry.isResponseCompleted()) &&
-               cacheEntry.canServeRequest(requestHeaders, authScope);
+               !isPreferWait(requestHeaders) &&
+               frequencySketch.frequency(requestHash) >= REFRESH_AHEAD_FREQUENCY &&
+               cacheEntry.isRefreshAheadDue(clock.millis(), refreshAhead);
+    }
+
+    public int requestStaleIfError(
+        Array32FW<HttpHeaderFW> requestHeaders)
+    {
+        final int value = cachedRequestCacheControl.parse(requestHeaders, HAS_CACHE_CONTROL).staleIfError();
+        return value != CacheControlParser.NO_VALUE ? value : 0;
+    }
+
+    int staleIfErrorDefault()
+    {
+        return staleIfError;
+    }
+
+    String synthesizeEtag(
+        long digest)
+    {
+        return String.format("\"%d-%016x\"", etagPrefix, digest);
+    }
+
+    public void recordAccess(
+        long requestHash)
+    {
+        frequencySketch.increment(requestHash);
     }
 
     public void purge(
-        int requestHash)
+        long requestHash)
     {
         DefaultCacheEntry cacheEntry = cachedEntriesByRequestHash.remove(requestHash);
         assert cacheEntry != null;
@@ -165,22 +359,117 @@ public class DefaultCache
         cachedEntriesByRequestHashWithoutQuery.computeIfPresent(
             requestHashWithoutQuery, (h, m) -> m.remove(requestHash) != null && m.isEmpty() ? null : m);
 
+        final long primaryHash = cacheEntry.primaryHash();
+        final Long2ObjectHashMap<DefaultCacheEntry> cachedEntriesByVariantHash = cachedEntriesByPrimaryHash.get(primaryHash);
+        if (cachedEntriesByVariantHash != null &&
+            cachedEntriesByVariantHash.remove(requestHash) != null &&
+            cachedEntriesByVariantHash.isEmpty())
+        {
+            cachedEntriesByPrimaryHash.remove(primaryHash);
+            varyByPrimaryHash.remove(primaryHash);
+        }
+
+        cacheEntry.clockRing.unlink(cacheEntry);
+        cancelExpiry(cacheEntry);
+
         counters.cacheEntries.accept(-1);
         cacheEntry.purge();
         counters.responsesPurged.getAsLong();
     }
 
+    /*
+     * Purges entries that have been stale for longer than the grace period, or longer than their
+     * surrogate freshness extension, without waiting for the cache to fill. Each call expires a
+     * bounded number of entries, deferring entries that are still pending for a request group,
+     * and returns the number expired.
+     */
+    public int expireEntries(
+        long now,
+        LongPredicate isPending)
+    {
+        isExpiryPending = isPending;
+
+        int expired = 0;
+        for (int polls = 0; polls < EXPIRY_LIMIT && expired < EXPIRY_LIMIT && expiryWheel.currentTickTime() <= now; polls++)
+        {
+            expired += expiryWheel.poll(now, onExpiryTimer, EXPIRY_LIMIT - expired);
+        }
+
+        for (int i = 0; i < deferredExpiries.size(); i++)
+        {
+            final DefaultCacheEntry cacheEntry = deferredExpiries.get(i);
+            scheduleExpiry(cacheEntry, now + expiryGrace);
+            counters.cacheExpiriesDeferred.getAsLong();
+        }
+        deferredExpiries.clear();
+        isExpiryPending = null;
+
+        return expired;
+    }
+
+    void scheduleExpiry(
+        DefaultCacheEntry cacheEntry)
+    {
+        final int window = Math.max(cacheEntry.surrogateFreshnessExtension(), cacheEntry.staleIfError());
+        final long extension = Math.max(expiryGrace, window * 1000L);
+        scheduleExpiry(cacheEntry, cacheEntry.staleAt() + extension);
+    }
+
+    private void scheduleExpiry(
+        DefaultCacheEntry cacheEntry,
+        long deadline)
+    {
+        cancelExpiry(cacheEntry);
+        final long timerId = expiryWheel.scheduleTimer(deadline);
+        cachedEntriesByExpiryTimerId.put(timerId, cacheEntry);
+        cacheEntry.expiryTimerId = timerId;
+    }
+
+    private void cancelExpiry(
+        DefaultCacheEntry cacheEntry)
+    {
+        final long timerId = cacheEntry.expiryTimerId;
+        if (timerId != NO_TIMER)
+        {
+            expiryWheel.cancelTimer(timerId);
+            cachedEntriesByExpiryTimerId.remove(timerId);
+            cacheEntry.expiryTimerId = NO_TIMER;
+        }
+    }
+
+    private boolean onExpiryTimer(
+        TimeUnit timeUnit,
+        long now,
+        long timerId)
+    {
+        final DefaultCacheEntry cacheEntry = cachedEntriesByExpiryTimerId.remove(timerId);
+        if (cacheEntry != null)
+        {
+            cacheEntry.expiryTimerId = NO_TIMER;
+            if (isExpiryPending.test(cacheEntry.requestHash()))
+            {
+                deferredExpiries.add(cacheEntry);
+            }
+            else
+            {
+                purge(cacheEntry.requestHash());
+                counters.cacheExpiries.getAsLong();
+            }
+        }
+        return true;
+    }
+
     public void invalidateCacheEntryIfNecessary(
         HttpCacheProxyFactory factory,
-        int requestHash,
+        long primaryHash,
         String requestURL,
         long traceId,
         Array32FW<HttpHeaderFW> headers)
     {
-        DefaultCacheEntry cacheEntry = cachedEntriesByRequestHash.get(requestHash);
-        if (cacheEntry != null)
+        final Long2ObjectHashMap<DefaultCacheEntry> cachedEntriesByVariantHash = cachedEntriesByPrimaryHash.get(primaryHash);
+        if (cachedEntriesByVariantHash != null)
         {
-            cacheEntry.invalidate();
+            cachedEntriesByVariantHash.values().forEach(DefaultCacheEntry::invalidate);
         }
 
         headers.forEach(header -> invalidateLinkCacheEntry(factory, requestURL, traceId, header));
@@ -211,10 +500,9 @@ public class DefaultCache
                         return;
                     }
 
-                    final String linkTargetFullUrl = String.format("%s://%s%s", requestURI.getScheme(),
-                        requestURI.getAuthority(),  matcher.group("path"));
-                    final int requestHashWithoutQuery = generateRequestHashWithoutQuery(linkTargetFullUrl);
-                    Int2ObjectHashMap<DefaultCacheEntry> requestHashWithoutQueryList =
+                    final int requestHashWithoutQuery = RequestKeyHasher.requestHashWithoutQuery(requestURI.getScheme(),
+                        requestURI.getAuthority(), matcher.group("path"));
+                    Long2ObjectHashMap<DefaultCacheEntry> requestHashWithoutQueryList =
                         cachedEntriesByRequestHashWithoutQuery.get(requestHashWithoutQuery);
                     if (requestHashWithoutQueryList != null)
                     {
@@ -241,7 +529,7 @@ public class DefaultCache
         Array32FW<HttpHeaderFW> responseHeaders = cacheEntry.getCachedResponseHeaders();
         if (isPreferWait(requestHeaders) &&
             !isPreferenceApplied(responseHeaders) &&
-            requestHeaders.anyMatch(h -> CACHE_CONTROL.equals(h.name().asString()) && h.value().asString().contains(MAX_AGE_0)))
+            hasMaxAgeZero(requestHeaders))
         {
             String status = HttpHeadersUtil.getHeader(responseHeaders, HttpHeaders.STATUS);
             String newEtag = cacheEntry.etag();
@@ -260,12 +548,11 @@ public class DefaultCache
         Array32FW<HttpHeaderFW> requestHeaders,
         Array32FW<HttpHeaderFW> responseHeaders,
         String ifNoneMatch,
-        int requestHash)
+        long requestHash)
     {
         if (isPreferWait(requestHeaders) &&
             !isPreferenceApplied(responseHeaders) &&
-            requestHeaders.anyMatch(h -> CACHE_CONTROL.equals(h.name().asString()) &&
-                                         h.value().asString().contains(MAX_AGE_0)))
+            hasMaxAgeZero(requestHeaders))
         {
             String status = HttpHeadersUtil.getHeader(responseHeaders, HttpHeaders.STATUS);
             String newEtag = getHeader(responseHeaders, ETAG);
@@ -293,7 +580,7 @@ public class DefaultCache
     }
 
     public void send304(
-        int requestHash,
+        long requestHash,
         String etag,
         String preferWait,
         MessageConsumer reply,
@@ -336,8 +623,14 @@ public class DefaultCache
                 routeId,
                 replyId,
                 traceId,
-                e -> e.item(h -> h.name(STATUS).value(NOT_MODIFIED_304))
-                      .item(h -> h.name(ETAG).value(etag)));
+                e ->
+                {
+                    e.item(h -> h.name(STATUS).value(NOT_MODIFIED_304));
+                    if (etag != null)
+                    {
+                        e.item(h -> h.name(ETAG).value(etag));
+                    }
+                });
         }
 
         writer.doHttpEnd(reply, routeId, replyId, traceId);
@@ -345,77 +638,179 @@ public class DefaultCache
 
     public boolean isCacheFull()
     {
-        return cacheBufferPool.acquiredSlots() >= allowedSlots;
+        return !hasAllowedSlots(1);
     }
 
     public boolean isRequestCacheable(
-        Array32FW<HttpHeaderFW> headers)
+        HttpHeadersIndex headers)
     {
-        return !headers.anyMatch(h ->
+        return (!headers.has(HttpHeadersIndex.METHOD) ||
+                headers.equalsIgnoreCase(HttpHeadersIndex.METHOD, GET_BYTES) ||
+                headers.equalsIgnoreCase(HttpHeadersIndex.METHOD, HEAD_BYTES)) &&
+               !headers.has(HttpHeadersIndex.TRANSFER_ENCODING) &&
+               !headers.contains(HttpHeadersIndex.CACHE_CONTROL, NO_STORE_BYTES);
+    }
+
+    /*
+     * CLOCK eviction, sweeping from the clock hand and giving each recently referenced entry
+     * a second chance, until there is room for one more minimal entry under the allowed slots.
+     * Entries with pending requests are skipped. Each entry is visited at most twice per call.
+     *
+     * A new entry is only admitted if its recent access frequency is higher than that of
+     * each victim, otherwise eviction stops and the cache remains full (TinyLFU admission).
+     */
+    public void evictEntries(
+        long requestHash,
+        LongPredicate isPending)
+    {
+        final boolean isNewEntry = !cachedEntriesByRequestHash.containsKey(requestHash);
+        final int frequency = frequencySketch.frequency(requestHash);
+
+        int remaining = memoryRing.size << 1;
+        while (memoryRing.hand != null &&
+               remaining-- > 0 &&
+               !hasAllowedSlots(MINIMUM_SLOTS_PER_ENTRY))
         {
-            final String name = h.name().asString();
-            final String value = h.value().asString();
-            switch (name)
+            final DefaultCacheEntry candidate = memoryRing.hand;
+            final long candidateHash = candidate.requestHash();
+
+            if (candidate.referenced || isPending.test(candidateHash))
             {
-            case CACHE_CONTROL:
-                return value.contains(CacheDirectives.NO_STORE);
-            case METHOD:
-                return !HttpMethods.GET.equalsIgnoreCase(value);
-            case TRANSFER_ENCODING:
-                return true;
-            default:
-                return false;
+                candidate.referenced = false;
+                memoryRing.advance();
             }
-        });
+            else if (isNewEntry && frequency <= frequencySketch.frequency(candidateHash))
+            {
+                counters.admissionsRejected.getAsLong();
+                break;
+            }
+            else
+            {
+                evictEntry(candidate, isPending);
+            }
+        }
+
+        if (isNewEntry && !isCacheFull())
+        {
+            counters.admissionsAccepted.getAsLong();
+        }
+    }
+
+    /*
+     * Whether the slots fit within the allowed share of the cache, leaving room for a full size slot of
+     * response data. Slots of a smaller size class do not make room in a larger one, so the full size
+     * class is checked on its own rather than only in aggregate.
+     */
+    private boolean hasAllowedSlots(
+        int slots)
+    {
+        return cacheBufferPool.acquiredSlots(0) + slots <= allowedSlots &&
+               cacheBufferPool.acquiredSlots(cacheBufferPool.slotCapacity()) < allowedDataSlots;
     }
 
-    public void purgeEntriesForNonPendingRequests(
-        Set<Integer> requestHashes)
+    /*
+     * Evicted entries with a completed response are demoted to the disk tier when configured,
+     * making room there by purging the oldest demoted entries first.
+     */
+    private void evictEntry(
+        DefaultCacheEntry entry,
+        LongPredicate isPending)
     {
-        cachedEntriesByRequestHash.forEach((requestHash, cacheEntry) ->
+        if (diskBufferPool != null &&
+            entry.isResponseCompleted() &&
+            reserveDiskSlots(entry.acquiredSlots(), isPending))
+        {
+            memoryRing.unlink(entry);
+            entry.relocate(diskRequestBufferPool, diskResponseBufferPool);
+            diskRing.link(entry);
+            counters.cacheDemotions.getAsLong();
+        }
+        else
         {
-            if (!requestHashes.contains(requestHash))
+            purge(entry.requestHash());
+        }
+        counters.cacheEvictions.getAsLong();
+    }
+
+    private boolean reserveDiskSlots(
+        int slots,
+        LongPredicate isPending)
+    {
+        int remaining = diskRing.size;
+        while (diskRing.hand != null &&
+               remaining-- > 0 &&
+               diskBufferPool.availableSlots() < slots)
+        {
+            final long candidateHash = diskRing.hand.requestHash();
+            if (isPending.test(candidateHash))
+            {
+                diskRing.advance();
+            }
+            else
             {
-                purge(requestHash);
+                purge(candidateHash);
             }
-        });
+        }
 
+        return diskBufferPool.availableSlots() >= slots;
     }
 
     public void updateResponseHeaderIfNecessary(
-        int requestHash,
+        long requestHash,
         Array32FW<HttpHeaderFW> responseHeaders)
     {
-        String status = HttpHeadersUtil.getHeader(responseHeaders, HttpHeaders.STATUS);
-        boolean isSelectedForUpdate = NOT_MODIFIED_304.equals(status) || OK_200.equals(status);
+        final boolean notModified = hasStatusCode(responseHeaders, 304);
+        boolean isSelectedForUpdate = notModified || hasStatusCode(responseHeaders, 200);
 
         if (isSelectedForUpdate)
         {
             DefaultCacheEntry cacheEntry =  get(requestHash);
             if (cacheEntry != null)
             {
-                cacheEntry.updateResponseHeader(status, responseHeaders);
+                cacheEntry.updateResponseHeader(notModified ? NOT_MODIFIED_304 : OK_200, responseHeaders);
             }
         }
     }
 
     public boolean satisfiedByCache(
-        Array32FW<HttpHeaderFW> headers)
+        HttpHeadersIndex headers)
     {
-        return !headers.anyMatch(h ->
-        {
-            final String name = h.name().asString();
-            final String value = h.value().asString();
-            return CACHE_CONTROL.equals(name) &&
-                   (value.contains(CacheDirectives.NO_CACHE) ||
-                    value.contains(MAX_AGE_0) ||
-                    value.contains(NO_STORE));
-        });
+        return !headers.contains(HttpHeadersIndex.CACHE_CONTROL, NO_CACHE_BYTES) &&
+               !headers.contains(HttpHeadersIndex.CACHE_CONTROL, MAX_AGE_0_BYTES) &&
+               !headers.contains(HttpHeadersIndex.CACHE_CONTROL, NO_STORE_BYTES);
+    }
+
+    void updateVaryBy(
+        long primaryHash,
+        String varyBy)
+    {
+        varyByPrimaryHash.put(primaryHash, varyBy);
     }
 
+    private long matchVariantHash(
+        long primaryHash,
+        long variantHash,
+        Array32FW<HttpHeaderFW> requestHeaders)
+    {
+        final Long2ObjectHashMap<DefaultCacheEntry> cachedEntriesByVariantHash = cachedEntriesByPrimaryHash.get(primaryHash);
+        if (cachedEntriesByVariantHash != null)
+        {
+            for (DefaultCacheEntry cacheEntry : cachedEntriesByVariantHash.values())
+            {
+                if (cacheEntry.clockRing == memoryRing &&
+                    cacheEntry.isResponseCompleted() &&
+                    cacheEntry.doesNotVaryBy(requestHeaders))
+                {
+                    return cacheEntry.requestHash();
+                }
+            }
+        }
+        return variantHash;
+    }
 
     private DefaultCacheEntry computeCacheEntryIfAbsent(
-        int requestHash,
+        long requestHash,
+        long primaryHash,
         short authScope,
         int collectionHash)
     {
@@ -423,12 +818,14 @@ public class DefaultCache
         if (entry == null)
         {
             counters.cacheEntries.accept(1);
-            return new DefaultCacheEntry(this,
-                                         requestHash,
-                                         authScope,
-                                         collectionHash,
-                                         cachedRequestBufferPool,
-                                         cachedResponseBufferPool);
+            entry = new DefaultCacheEntry(this,
+                                          requestHash,
+                                          primaryHash,
+                                          authScope,
+                                          collectionHash,
+                                          cachedRequestBufferPool,
+                                          cachedResponseBufferPool);
+            memoryRing.link(entry);
         }
 
         return entry;
@@ -16,75 +16,132 @@
 package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 
 import static java.lang.Integer.MAX_VALUE;
-import static java.lang.Integer.parseInt;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MAX_AGE;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MAX_STALE;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MIN_FRESH;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.S_MAXAGE;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.sameAuthorizationScope;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_MAX_STALE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_MIN_FRESH;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_NO_CACHE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_PRIVATE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_PUBLIC;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_S_MAXAGE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_X_PROTECTED;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.NO_VALUE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.sameAuthorization;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpStatus.NOT_MODIFIED_304;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.SurrogateControl.getSurrogateAge;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CACHE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpDate.INVALID_DATE;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.ETAG;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_CACHE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_DATE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_LAST_MODIFIED;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_SURROGATE_CONTROL;
 
-import java.text.SimpleDateFormat;
-import java.time.Instant;
-import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
+import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.IntArrayList;
 import org.reaktivity.nukleus.buffer.BufferPool;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpDate;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.SizedBufferPool;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.Flyweight;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.DataFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.HttpBeginExFW;
 
 public final class DefaultCacheEntry
 {
+    public static final int NO_GENERATION = -1;
+
     public static final int NUM_OF_HEADER_SLOTS = 1;
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
 
-    private final BufferPool requestPool;
-    private final BufferPool responsePool;
-    private final IntArrayList responseSlots;
+    private static final int FLAG_PUBLIC = 0x01;
+    private static final int FLAG_PRIVATE = 0x02;
+    private static final int FLAG_S_MAXAGE = 0x04;
+    private static final int FLAG_PROTECTED = 0x08;
+    private static final long NO_LAST_MODIFIED = -1L;
+    private static final long DIGEST_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long DIGEST_PRIME = 0x100000001b3L;
+
+    private IntArrayList responseSlots;
+    private IntArrayList responseSlotLimits;
+    private IntArrayList retainedSlots;
+    private IntArrayList retainedSlotLimits;
+    private IntArrayList segments;
+    private IntArrayList segmentSlots;
 
     private final DefaultCache cache;
-    private final int requestHash;
+    private final long requestHash;
+    private final long primaryHash;
     private final int requestHashWithoutQuery;
     private final short authScope;
 
     private String etag;
+    private boolean etagSynthesized;
+    private long digest = DIGEST_OFFSET_BASIS;
     private String varyBy;
     private int requestSlot = NO_SLOT;
     private int responseHeadersSize;
     private int responseSize;
+    private int responseCapacity;
+    private int retainedHeadersSize;
+    private int retainedSize;
+    private int retainedCapacity;
+    private String retainedEtag;
+    private int generations;
+    private int responseGeneration;
+    private int responseReaders;
+    private int retainedGeneration = NO_GENERATION;
+    private int retainedReaders;
     private boolean validationRequired;
     private boolean responseCompleted;
-    private Instant cacheStaleAt;
-    private Instant cacheReceivedAt;
+    private long receivedAt;
+    private String lastModified;
+    private long lastModifiedAt = NO_LAST_MODIFIED;
+    private long staleAt;
+    private int maxAge;
+    private int surrogateAge;
+    private int surrogateFreshnessExtension;
+    private int staleIfError;
+    private int responseFlags;
+    private int representationLength;
+    private int segmentStart;
+    private int segmentProgress;
+    private int segmentSlotCount;
+    private SizedBufferPool requestPool;
+    private SizedBufferPool responsePool;
+
+    ClockRing clockRing;
+    DefaultCacheEntry clockPrev;
+    DefaultCacheEntry clockNext;
+    boolean referenced;
+    long expiryTimerId = DefaultCache.NO_TIMER;
 
     DefaultCacheEntry(
         DefaultCache cache,
-        int requestHash,
+        long requestHash,
+        long primaryHash,
         short authScope,
         int requestHashWithoutQuery,
-        BufferPool requestPool,
-        BufferPool responsePool)
+        SizedBufferPool requestPool,
+        SizedBufferPool responsePool)
     {
         this.cache = cache;
         this.requestHash = requestHash;
+        this.primaryHash = primaryHash;
         this.authScope = authScope;
         this.requestHashWithoutQuery = requestHashWithoutQuery;
         this.requestPool = requestPool;
         this.responsePool = responsePool;
         this.responseSlots = new IntArrayList();
+        this.responseSlotLimits = new IntArrayList();
+        this.retainedSlots = new IntArrayList();
+        this.retainedSlotLimits = new IntArrayList();
     }
 
     public String getVaryBy()
@@ -92,21 +149,41 @@ public final class DefaultCacheEntry
         return varyBy;
     }
 
-    public int requestHash()
+    public long requestHash()
     {
         return requestHash;
     }
 
+    public long primaryHash()
+    {
+        return primaryHash;
+    }
+
     public int requestHashWithoutQuery()
     {
         return requestHashWithoutQuery;
     }
 
+    short authScope()
+    {
+        return authScope;
+    }
+
     public int responseSize()
     {
         return responseSize;
     }
 
+    public int representationSize()
+    {
+        return segments != null ? representationLength : responseSize;
+    }
+
+    public boolean isSparse()
+    {
+        return segments != null;
+    }
+
     public String etag()
     {
         return etag;
@@ -116,6 +193,12 @@ public final class DefaultCacheEntry
         String etag)
     {
         this.etag = etag;
+        this.etagSynthesized = false;
+    }
+
+    public boolean isEtagSynthesized()
+    {
+        return etagSynthesized;
     }
 
     public boolean isResponseCompleted()
@@ -123,12 +206,30 @@ public final class DefaultCacheEntry
         return responseCompleted;
     }
 
+    public String lastModified()
+    {
+        return lastModified;
+    }
+
+    /*
+     * Compares the If-Modified-Since date against the Last-Modified date parsed when the response headers were stored.
+     */
+    public boolean isNotModifiedSince(
+        long ifModifiedSince)
+    {
+        return ifModifiedSince != INVALID_DATE &&
+               lastModifiedAt != NO_LAST_MODIFIED &&
+               lastModifiedAt <= ifModifiedSince;
+    }
+
     public void setResponseCompleted(
         boolean responseCompleted)
     {
         if (responseCompleted)
         {
             validationRequired = false;
+            releaseRetainedResponseIfUnread();
+            synthesizeEtagIfNecessary();
         }
 
         this.responseCompleted = responseCompleted;
@@ -139,11 +240,189 @@ public final class DefaultCacheEntry
         validationRequired = true;
     }
 
+    boolean isValidationRequired()
+    {
+        return validationRequired;
+    }
+
     public IntArrayList getResponseSlots()
     {
         return responseSlots;
     }
 
+    public SizedBufferPool responsePool()
+    {
+        return responsePool;
+    }
+
+    int responseSlotLimit(
+        int index)
+    {
+        return responseSlotLimits.getInt(index);
+    }
+
+    /*
+     * Pins the stored response for a reader. A refresh retains the pinned response rather than releasing it
+     * when its replacement completes, so the reader keeps being served from the slots it started on.
+     */
+    public int acquireResponse()
+    {
+        responseReaders++;
+        return responseGeneration;
+    }
+
+    public void releaseResponse(
+        int generation)
+    {
+        if (generation == responseGeneration)
+        {
+            responseReaders--;
+        }
+        else if (isRetained(generation))
+        {
+            retainedReaders--;
+            if (responseCompleted)
+            {
+                releaseRetainedResponseIfUnread();
+            }
+        }
+    }
+
+    public boolean isResponseAvailable(
+        int generation)
+    {
+        return generation == responseGeneration || isRetained(generation);
+    }
+
+    public boolean isResponseCompleted(
+        int generation)
+    {
+        return isRetained(generation) || responseCompleted;
+    }
+
+    public int responseSize(
+        int generation)
+    {
+        return isRetained(generation) ? retainedSize : responseSize;
+    }
+
+    public void buildResponsePayload(
+        int generation,
+        int index,
+        int length,
+        OctetsFW.Builder builder)
+    {
+        if (isRetained(generation))
+        {
+            buildResponsePayload(retainedSlots, retainedSlotLimits, index, length, builder);
+        }
+        else
+        {
+            buildResponsePayload(index, length, builder);
+        }
+    }
+
+    public void buildResponsePayload(
+        int index,
+        int length,
+        OctetsFW.Builder builder)
+    {
+        if (segments != null)
+        {
+            buildSegmentPayload(index, length, builder);
+        }
+        else
+        {
+            buildResponsePayload(responseSlots, responseSlotLimits, index, length, builder);
+        }
+    }
+
+    private void buildResponsePayload(
+        IntArrayList slots,
+        IntArrayList slotLimits,
+        int index,
+        int length,
+        OctetsFW.Builder builder)
+    {
+        int slotIndex = NUM_OF_HEADER_SLOTS;
+        int slotStart = 0;
+
+        // only the first data slot may be smaller than the rest, so seek past it directly
+        final int firstSlotLimit = slotLimits.getInt(NUM_OF_HEADER_SLOTS);
+        if (index >= firstSlotLimit && slotLimits.size() > NUM_OF_HEADER_SLOTS + 1)
+        {
+            final int slotLimit = slotLimits.getInt(NUM_OF_HEADER_SLOTS + 1);
+            final int skipped = (index - firstSlotLimit) / slotLimit;
+            slotIndex += 1 + skipped;
+            slotStart = firstSlotLimit + skipped * slotLimit;
+        }
+
+        while (length > 0)
+        {
+            final int slotEnd = slotStart + slotLimits.getInt(slotIndex);
+            if (index < slotEnd)
+            {
+                final int slot = slots.getInt(slotIndex);
+                final int chunkLength = Math.min(slotEnd - index, length);
+                final MutableDirectBuffer buffer = responsePool.buffer(slot);
+                builder.put(buffer, index - slotStart, chunkLength);
+                index += chunkLength;
+                length -= chunkLength;
+            }
+            slotStart = slotEnd;
+            slotIndex++;
+        }
+    }
+
+    int acquiredSlots()
+    {
+        return (requestSlot != NO_SLOT ? 1 : 0) + responseSlots.size() + retainedSlots.size() + segmentSlotCount;
+    }
+
+    void relocate(
+        SizedBufferPool newRequestPool,
+        SizedBufferPool newResponsePool)
+    {
+        if (requestSlot != NO_SLOT)
+        {
+            requestSlot = relocateSlot(requestSlot, requestPool, newRequestPool);
+        }
+
+        for (int i = 0; i < responseSlots.size(); i++)
+        {
+            responseSlots.setInt(i, relocateSlot(responseSlots.getInt(i), responsePool, newResponsePool));
+        }
+
+        for (int i = 0; i < retainedSlots.size(); i++)
+        {
+            retainedSlots.setInt(i, relocateSlot(retainedSlots.getInt(i), responsePool, newResponsePool));
+        }
+
+        if (segmentSlots != null)
+        {
+            for (int i = 0; i < segmentSlots.size(); i++)
+            {
+                final int slot = segmentSlots.getInt(i);
+                if (slot != NO_SLOT)
+                {
+                    segmentSlots.setInt(i, relocateSlot(slot, responsePool, newResponsePool));
+                }
+            }
+        }
+
+        requestPool = newRequestPool;
+        responsePool = newResponsePool;
+    }
+
+    void reset(
+        SizedBufferPool newRequestPool,
+        SizedBufferPool newResponsePool)
+    {
+        purge();
+        requestPool = newRequestPool;
+        responsePool = newResponsePool;
+    }
+
     public Array32FW<HttpHeaderFW> getRequestHeaders()
     {
         return getRequestHeaders(cache.requestHeadersRO);
@@ -164,7 +443,7 @@ public final class DefaultCacheEntry
         {
             return false;
         }
-        int requestHeaderSlot = requestPool.acquire(requestHash);
+        int requestHeaderSlot = requestPool.acquire(requestHash, requestHeaders.sizeof());
         if (requestHeaderSlot == NO_SLOT)
         {
             return false;
@@ -199,10 +478,144 @@ public final class DefaultCacheEntry
     public boolean storeResponseHeaders(
         Array32FW<HttpHeaderFW> responseHeaders)
     {
+        if (responseCompleted && !validationRequired)
+        {
+            retainResponse();
+        }
+        else
+        {
+            evictResponseIfNecessary();
+        }
+        releaseSegmentsIfNecessary();
+        digest = DIGEST_OFFSET_BASIS;
+
+        return storeResponseHeaderSlot(responseHeaders);
+    }
+
+    /*
+     * Stores the headers of a 206 response carrying the segment starting at the given offset of a representation
+     * of the given length. Segments of the same representation, identified by its etag, are kept alongside each
+     * other in slots aligned to the slot capacity, so the entry can serve any range they cover.
+     */
+    public boolean storeSegmentHeaders(
+        Array32FW<HttpHeaderFW> responseHeaders,
+        int start,
+        int length)
+    {
+        final String newEtag = getHeader(responseHeaders, ETAG);
+        final boolean sameRepresentation = segments != null &&
+                                           newEtag != null &&
+                                           newEtag.equals(etag) &&
+                                           length == representationLength;
+
         evictResponseIfNecessary();
+        if (!sameRepresentation)
+        {
+            releaseRetainedResponseIfNecessary();
+            releaseSegmentsIfNecessary();
+            segments = new IntArrayList();
+            segmentSlots = new IntArrayList();
+            representationLength = length;
+        }
+        segmentStart = start;
+        segmentProgress = start;
+
+        final boolean stored = storeResponseHeaderSlot(responseHeaders);
+        if (!stored)
+        {
+            releaseSegmentsIfNecessary();
+        }
+        return stored;
+    }
+
+    public boolean storeSegmentData(
+        DataFW data)
+    {
+        final OctetsFW payload = data.payload();
+        final int payloadSize = payload.sizeof();
+        final int slotCapacity = responsePool.slotCapacity();
+
+        boolean stored = segmentProgress + payloadSize <= representationLength;
+        int written = 0;
+        while (stored && written < payloadSize)
+        {
+            final int position = segmentProgress + written;
+            final int slot = acquireSegmentSlot(position / slotCapacity);
+            stored = slot != NO_SLOT;
+            if (stored)
+            {
+                final int slotOffset = position % slotCapacity;
+                final int toWrite = Math.min(slotCapacity - slotOffset, payloadSize - written);
+                responsePool.buffer(slot).putBytes(slotOffset, payload.buffer(), payload.offset() + written, toWrite);
+                written += toWrite;
+            }
+        }
+        segmentProgress += written;
+
+        return stored;
+    }
+
+    public void completeSegment()
+    {
+        if (segmentProgress > segmentStart)
+        {
+            addSegment(segmentStart, segmentProgress);
+        }
+    }
+
+    public boolean hasSegment(
+        int start,
+        int end)
+    {
+        boolean covered = false;
+        for (int i = 0; !covered && i < segments.size(); i += 2)
+        {
+            covered = segments.getInt(i) <= start && end <= segments.getInt(i + 1);
+        }
+        return covered;
+    }
+
+    public int segmentGapStart(
+        int start,
+        int end)
+    {
+        int gapStart = start;
+        for (int i = 0; i < segments.size() && gapStart < end; i += 2)
+        {
+            if (segments.getInt(i) <= gapStart && gapStart < segments.getInt(i + 1))
+            {
+                gapStart = segments.getInt(i + 1);
+            }
+        }
+        return gapStart;
+    }
+
+    public int segmentGapEnd(
+        int start,
+        int end)
+    {
+        int gapEnd = end;
+        for (int i = segments.size() - 2; i >= 0 && gapEnd > start; i -= 2)
+        {
+            if (segments.getInt(i) < gapEnd && gapEnd <= segments.getInt(i + 1))
+            {
+                gapEnd = segments.getInt(i);
+            }
+        }
+        return gapEnd;
+    }
+
+    private boolean storeResponseHeaderSlot(
+        Array32FW<HttpHeaderFW> responseHeaders)
+    {
         varyBy = getHeader(responseHeaders, HttpHeaders.VARY);
         etag = getHeader(responseHeaders, ETAG);
-        resetCacheTiming();
+        etagSynthesized = false;
+        if (varyBy != null)
+        {
+            cache.updateVaryBy(primaryHash, varyBy);
+        }
+        updateFreshness(responseHeaders);
 
         final int slotCapacity = responsePool.slotCapacity();
         if (slotCapacity < responseHeaders.sizeof())
@@ -210,12 +623,13 @@ public final class DefaultCacheEntry
             return false;
         }
 
-        int headerSlot = responsePool.acquire(requestHash);
+        int headerSlot = responsePool.acquire(requestHash, responseHeaders.sizeof());
         if (headerSlot == NO_SLOT)
         {
             return false;
         }
         responseSlots.add(headerSlot);
+        responseSlotLimits.add(responsePool.slotCapacity(headerSlot));
 
         MutableDirectBuffer buffer = responsePool.buffer(headerSlot);
         buffer.putBytes(0, responseHeaders.buffer(), responseHeaders.offset(), responseHeaders.sizeof());
@@ -232,7 +646,6 @@ public final class DefaultCacheEntry
         Array32FW<HttpHeaderFW> oldHeaders = getResponseHeaders(responseHeadersSO);
         String statusCode = Objects.requireNonNull(oldHeaders.matchFirst(h -> Objects.requireNonNull(h.name().asString())
                                                    .toLowerCase().equals(":status"))).value().asString();
-        resetCacheTiming();
 
         final LinkedHashMap<String, String> newHeadersMap = new LinkedHashMap<>();
         oldHeaders.forEach(h -> newHeadersMap.put(h.name().asString(), h.value().asString()));
@@ -240,33 +653,55 @@ public final class DefaultCacheEntry
         newHeadersMap.put(":status", statusCode);
 
         if (NOT_MODIFIED_304.equals(status) &&
-            !newHeaders.anyMatch(h -> "date".equalsIgnoreCase(h.name().asString())))
+            !newHeaders.anyMatch(HAS_DATE))
         {
-            try
-            {
-                newHeadersMap.put("date", DATE_FORMAT.format(Date.from(Instant.now())));
-            }
-            catch (Exception e)
-            {
-                //NOOP
-            }
+            newHeadersMap.put("date", cache.clock.date());
         }
 
-        Integer firstResponseSlot = responseSlots.get(0);
-        MutableDirectBuffer responseBuffer = responsePool.buffer(firstResponseSlot);
-
+        final MutableDirectBuffer headersBuffer = cache.headersBuffer;
         final Array32FW.Builder<HttpHeaderFW.Builder, HttpHeaderFW> headersRW =
             new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW());
 
-        responseHeadersSize = responseBuffer.capacity();
-        headersRW.wrap(responseBuffer, 0, responseHeadersSize);
+        headersRW.wrap(headersBuffer, 0, headersBuffer.capacity());
 
         for (Map.Entry<String, String> entry : newHeadersMap.entrySet())
         {
             headersRW.item(y -> y.name(entry.getKey()).value(entry.getValue()));
         }
 
-        headersRW.build();
+        final Array32FW<HttpHeaderFW> headers = headersRW.build();
+        final int headersSize = headers.sizeof();
+
+        int headerSlot = responseSlots.getInt(0);
+        if (responsePool.slotCapacity(headerSlot) < headersSize)
+        {
+            final int newHeaderSlot = responsePool.acquire(requestHash, headersSize);
+            if (newHeaderSlot == NO_SLOT)
+            {
+                invalidate();
+                return;
+            }
+            responsePool.release(headerSlot);
+            headerSlot = newHeaderSlot;
+            responseSlots.setInt(0, headerSlot);
+            responseSlotLimits.setInt(0, responsePool.slotCapacity(headerSlot));
+        }
+
+        MutableDirectBuffer responseBuffer = responsePool.buffer(headerSlot);
+        responseBuffer.putBytes(0, headersBuffer, 0, headersSize);
+        responseHeadersSize = headersSize;
+        updateFreshness(headers);
+    }
+
+    /*
+     * Refreshes the stored response headers from a 304 response to a conditional request carrying
+     * this entry's validators, keeping the stored response body.
+     */
+    public void updateRevalidatedResponseHeaders(
+        Array32FW<HttpHeaderFW> notModifiedHeaders)
+    {
+        validationRequired = false;
+        updateResponseHeader(NOT_MODIFIED_304, notModifiedHeaders);
     }
 
     public boolean storeResponseData(
@@ -279,19 +714,67 @@ public final class DefaultCacheEntry
     {
         evictRequestIfNecessary();
         evictResponseIfNecessary();
+        releaseRetainedResponseIfNecessary();
+        releaseSegmentsIfNecessary();
+    }
+
+    /*
+     * Reinstates the last completed response, retained while its replacement is being stored,
+     * when the replacement is aborted before it completes.
+     */
+    public boolean restoreRetainedResponse()
+    {
+        if (retainedSlots.isEmpty() || validationRequired)
+        {
+            return false;
+        }
+
+        evictResponseIfNecessary();
+
+        final IntArrayList slots = responseSlots;
+        final IntArrayList slotLimits = responseSlotLimits;
+        responseSlots = retainedSlots;
+        responseSlotLimits = retainedSlotLimits;
+        retainedSlots = slots;
+        retainedSlotLimits = slotLimits;
+        responseHeadersSize = retainedHeadersSize;
+        responseSize = retainedSize;
+        responseCapacity = retainedCapacity;
+        responseGeneration = retainedGeneration;
+        responseReaders = retainedReaders;
+        retainedGeneration = NO_GENERATION;
+        retainedReaders = 0;
+
+        final Array32FW<HttpHeaderFW> responseHeaders = getCachedResponseHeaders();
+        varyBy = getHeader(responseHeaders, HttpHeaders.VARY);
+        etag = retainedEtag;
+        etagSynthesized = getHeader(responseHeaders, ETAG) == null;
+        retainedEtag = null;
+        updateFreshness(responseHeaders);
+        setResponseCompleted(true);
+
+        return true;
+    }
+
+    public boolean matchesRequestKey(
+        Array32FW<HttpHeaderFW> requestHeaders)
+    {
+        return requestSlot == NO_SLOT || RequestUtil.matchesRequestKey(getRequestHeaders(), requestHeaders);
     }
 
     public boolean  canServeRequest(
         Array32FW<HttpHeaderFW> requestHeaders,
         short authScope)
     {
-        Instant now = Instant.now();
+        final long now = cache.clock.millis();
+        final CacheControlParser requestCacheControl =
+            cache.cachedRequestCacheControl.parse(requestHeaders, HAS_CACHE_CONTROL);
 
         final boolean canBeServedToAuthorized = canBeServedToAuthorized(requestHeaders, authScope);
         final boolean doesNotVaryBy = doesNotVaryBy(requestHeaders);
-        final boolean satisfiesFreshnessRequirements = satisfiesFreshnessRequirementsOf(requestHeaders, now);
-        final boolean satisfiesStalenessRequirements = satisfiesStalenessRequirementsOf(requestHeaders, now);
-        final boolean satisfiesAgeRequirements = satisfiesAgeRequirementsOf(requestHeaders, now);
+        final boolean satisfiesFreshnessRequirements = satisfiesFreshnessRequirementsOf(requestCacheControl, now);
+        final boolean satisfiesStalenessRequirements = satisfiesStalenessRequirementsOf(requestCacheControl, now);
+        final boolean satisfiesAgeRequirements = satisfiesAgeRequirementsOf(requestCacheControl, now);
 
         return canBeServedToAuthorized &&
                doesNotVaryBy &&
@@ -301,6 +784,58 @@ public final class DefaultCacheEntry
                !validationRequired;
     }
 
+    /*
+     * Stale-while-revalidate (RFC 5861), with the window taken from the surrogate freshness extension.
+     * Requests that bound staleness or freshness themselves are not served stale.
+     */
+    public boolean canServeStaleRequest(
+        Array32FW<HttpHeaderFW> requestHeaders,
+        short authScope)
+    {
+        final long now = cache.clock.millis();
+        final CacheControlParser requestCacheControl =
+            cache.cachedRequestCacheControl.parse(requestHeaders, HAS_CACHE_CONTROL);
+
+        return responseCompleted &&
+               !validationRequired &&
+               surrogateFreshnessExtension > 0 &&
+               now > staleAt &&
+               now <= staleAt + surrogateFreshnessExtension * 1000L &&
+               !requestCacheControl.contains(DIRECTIVE_NO_CACHE | DIRECTIVE_MIN_FRESH | DIRECTIVE_MAX_STALE) &&
+               satisfiesAgeRequirementsOf(requestCacheControl, now) &&
+               canBeServedToAuthorized(requestHeaders, authScope) &&
+               doesNotVaryBy(requestHeaders);
+    }
+
+    /*
+     * Stale-if-error (RFC 5861), with the window taken from the request or response cache-control,
+     * defaulting to the configured window when the response does not specify one.
+     */
+    public boolean canServeStaleIfError(
+        int requestStaleIfError)
+    {
+        final long now = cache.clock.millis();
+        final int window = Math.max(staleIfError(), requestStaleIfError);
+
+        return responseCompleted &&
+               !validationRequired &&
+               window > 0 &&
+               now <= staleAt + window * 1000L;
+    }
+
+    boolean isRefreshAheadDue(
+        long now,
+        int refreshAhead)
+    {
+        final long lifetime = staleAt - receivedAt;
+
+        return responseCompleted &&
+               !validationRequired &&
+               lifetime > 0 &&
+               now <= staleAt &&
+               (staleAt - now) * 100L <= lifetime * refreshAhead;
+    }
+
     public void evictRequestIfNecessary()
     {
         if (requestSlot != NO_SLOT)
@@ -316,12 +851,192 @@ public final class DefaultCacheEntry
         {
             responseSlots.forEach(responsePool::release);
             responseSlots.clear();
+            responseSlotLimits.clear();
             responseSize = 0;
+            responseCapacity = 0;
+            responseGeneration = ++generations;
+            responseReaders = 0;
             setResponseCompleted(false);
         }
     }
 
-    private boolean storeResponseData(
+    private void retainResponse()
+    {
+        releaseRetainedResponseIfNecessary();
+
+        final IntArrayList slots = retainedSlots;
+        final IntArrayList slotLimits = retainedSlotLimits;
+        retainedSlots = responseSlots;
+        retainedSlotLimits = responseSlotLimits;
+        responseSlots = slots;
+        responseSlotLimits = slotLimits;
+        retainedHeadersSize = responseHeadersSize;
+        retainedSize = responseSize;
+        retainedCapacity = responseCapacity;
+        retainedEtag = etag;
+        retainedGeneration = responseGeneration;
+        retainedReaders = responseReaders;
+        responseSize = 0;
+        responseCapacity = 0;
+        responseGeneration = ++generations;
+        responseReaders = 0;
+        setResponseCompleted(false);
+    }
+
+    private boolean isRetained(
+        int generation)
+    {
+        return generation != NO_GENERATION && generation == retainedGeneration;
+    }
+
+    private void releaseRetainedResponseIfUnread()
+    {
+        if (retainedReaders == 0)
+        {
+            releaseRetainedResponseIfNecessary();
+        }
+    }
+
+    private void releaseRetainedResponseIfNecessary()
+    {
+        if (!retainedSlots.isEmpty())
+        {
+            retainedSlots.forEach(responsePool::release);
+            retainedSlots.clear();
+            retainedSlotLimits.clear();
+            retainedEtag = null;
+            retainedGeneration = NO_GENERATION;
+            retainedReaders = 0;
+        }
+    }
+
+    /*
+     * Responses stored without an etag are given a strong etag of the configured prefix and a digest
+     * of the response payload, computed as the payload is stored, so they can still be revalidated.
+     */
+    private void synthesizeEtagIfNecessary()
+    {
+        if (etag == null && !responseSlots.isEmpty())
+        {
+            etag = cache.synthesizeEtag(digest);
+            etagSynthesized = true;
+        }
+    }
+
+    private void updateDigest(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        long hash = digest;
+        for (int i = 0; i < length; i++)
+        {
+            hash = (hash ^ (buffer.getByte(offset + i) & 0xff)) * DIGEST_PRIME;
+        }
+        digest = hash;
+    }
+
+    private void releaseSegmentsIfNecessary()
+    {
+        if (segments != null)
+        {
+            for (int i = 0; i < segmentSlots.size(); i++)
+            {
+                final int slot = segmentSlots.getInt(i);
+                if (slot != NO_SLOT)
+                {
+                    responsePool.release(slot);
+                }
+            }
+            segments = null;
+            segmentSlots = null;
+            segmentSlotCount = 0;
+            representationLength = 0;
+        }
+    }
+
+    private int acquireSegmentSlot(
+        int slotIndex)
+    {
+        while (segmentSlots.size() <= slotIndex)
+        {
+            segmentSlots.addInt(NO_SLOT);
+        }
+
+        int slot = segmentSlots.getInt(slotIndex);
+        if (slot == NO_SLOT)
+        {
+            slot = responsePool.acquire(requestHash, responsePool.slotCapacity());
+            if (slot != NO_SLOT)
+            {
+                segmentSlots.setInt(slotIndex, slot);
+                segmentSlotCount++;
+            }
+        }
+        return slot;
+    }
+
+    /*
+     * Segments are kept as sorted, disjoint [start, end) pairs, so adjacent or overlapping segments are merged.
+     */
+    private void addSegment(
+        int start,
+        int end)
+    {
+        int index = 0;
+        while (index < segments.size() && segments.getInt(index + 1) < start)
+        {
+            index += 2;
+        }
+
+        int mergedStart = start;
+        int mergedEnd = end;
+        while (index < segments.size() && segments.getInt(index) <= end)
+        {
+            mergedStart = Math.min(mergedStart, segments.getInt(index));
+            mergedEnd = Math.max(mergedEnd, segments.getInt(index + 1));
+            segments.remove(index);
+            segments.remove(index);
+        }
+
+        segments.addInt(index, mergedStart);
+        segments.addInt(index + 1, mergedEnd);
+    }
+
+    private void buildSegmentPayload(
+        int index,
+        int length,
+        OctetsFW.Builder builder)
+    {
+        final int slotCapacity = responsePool.slotCapacity();
+        while (length > 0)
+        {
+            final int slot = segmentSlots.getInt(index / slotCapacity);
+            final int slotOffset = index % slotCapacity;
+            final int chunkLength = Math.min(slotCapacity - slotOffset, length);
+            builder.put(responsePool.buffer(slot), slotOffset, chunkLength);
+            index += chunkLength;
+            length -= chunkLength;
+        }
+    }
+
+    private int relocateSlot(
+        int slot,
+        SizedBufferPool pool,
+        SizedBufferPool newPool)
+    {
+        final int slotCapacity = pool.slotCapacity(slot);
+        final int newSlot = newPool.acquire(requestHash, slotCapacity);
+        assert newSlot != NO_SLOT;
+
+        final MutableDirectBuffer buffer = pool.buffer(slot);
+        newPool.buffer(newSlot).putBytes(0, buffer, 0, slotCapacity);
+        pool.release(slot);
+
+        return newSlot;
+    }
+
+    boolean storeResponseData(
         Flyweight data)
     {
         return storeResponseData(data, 0);
@@ -336,42 +1051,61 @@ public final class DefaultCacheEntry
             return true;
         }
 
-        final int slotCapacity = responsePool.slotCapacity();
-        int slotSpaceRemaining = (slotCapacity * (responseSlots.size() - NUM_OF_HEADER_SLOTS)) - responseSize;
+        int slotSpaceRemaining = responseCapacity - responseSize;
         if (slotSpaceRemaining == 0)
         {
-            slotSpaceRemaining = slotCapacity;
-            int newSlot = responsePool.acquire(requestHash);
+            final int slotCapacity = responsePool.slotCapacity();
+            final boolean firstDataSlot = responseSlots.size() == NUM_OF_HEADER_SLOTS;
+            final int minimumCapacity = firstDataSlot ? Math.min(data.sizeof() - written, slotCapacity) : slotCapacity;
+            int newSlot = responsePool.acquire(requestHash, minimumCapacity);
             if (newSlot == NO_SLOT)
             {
                 return false;
             }
+            slotSpaceRemaining = responsePool.slotCapacity(newSlot);
+            responseCapacity += slotSpaceRemaining;
             responseSlots.add(newSlot);
+            responseSlotLimits.add(slotSpaceRemaining);
         }
 
         int toWrite = Math.min(slotSpaceRemaining, data.sizeof() - written);
 
-        int slot = responseSlots.get(responseSlots.size() - NUM_OF_HEADER_SLOTS);
+        final int lastSlotIndex = responseSlots.size() - 1;
+        final int slot = responseSlots.getInt(lastSlotIndex);
+        final int slotLimit = responseSlotLimits.getInt(lastSlotIndex);
 
         MutableDirectBuffer buffer = responsePool.buffer(slot);
-        buffer.putBytes(slotCapacity - slotSpaceRemaining, data.buffer(), data.offset() + written, toWrite);
+        buffer.putBytes(slotLimit - slotSpaceRemaining, data.buffer(), data.offset() + written, toWrite);
+        updateDigest(data.buffer(), data.offset() + written, toWrite);
         written += toWrite;
         responseSize += toWrite;
         return storeResponseData(data, written);
     }
 
     public boolean isStale(
-        Instant now)
+        long now)
+    {
+        return now / 1000L > staleAt / 1000L;
+    }
+
+    public long receivedAt()
+    {
+        return receivedAt;
+    }
+
+    public long staleAt()
     {
-        final Instant staleAt = staleAt();
-        return now.getEpochSecond() > staleAt.getEpochSecond();
+        return staleAt;
     }
 
-    private CacheControl responseCacheControl()
+    public int surrogateFreshnessExtension()
     {
-        Array32FW<HttpHeaderFW> responseHeaders = getCachedResponseHeaders();
-        String cacheControl = getHeader(responseHeaders, CACHE_CONTROL);
-        return cache.responseCacheControl.parse(cacheControl);
+        return surrogateFreshnessExtension;
+    }
+
+    int staleIfError()
+    {
+        return staleIfError != -1 ? staleIfError : cache.staleIfErrorDefault();
     }
 
     public boolean doesNotVaryBy(
@@ -387,14 +1121,21 @@ public final class DefaultCacheEntry
         Array32FW<HttpHeaderFW> request,
         short requestAuthScope)
     {
-        if (SurrogateControl.isProtectedEx(getCachedResponseHeaders()))
+        if ((responseFlags & FLAG_PROTECTED) != 0)
         {
             return requestAuthScope == authScope;
         }
+        else if ((responseFlags & (FLAG_PUBLIC | FLAG_S_MAXAGE)) != 0)
+        {
+            return true;
+        }
+        else if ((responseFlags & FLAG_PRIVATE) != 0)
+        {
+            return false;
+        }
 
-        final CacheControl responseCacheControl = responseCacheControl();
         final Array32FW<HttpHeaderFW> cachedRequestHeaders = getRequestHeaders(cache.requestHeadersRO);
-        return sameAuthorizationScope(request, cachedRequestHeaders, responseCacheControl);
+        return sameAuthorization(request, cachedRequestHeaders);
     }
 
     private Array32FW<HttpHeaderFW> getRequestHeaders(
@@ -406,122 +1147,82 @@ public final class DefaultCacheEntry
     }
 
     private boolean satisfiesFreshnessRequirementsOf(
-        Array32FW<HttpHeaderFW> request,
-        Instant now)
+        CacheControlParser requestCacheControl,
+        long now)
     {
-        final String requestCacheControlHeaderValue = getHeader(request, CACHE_CONTROL);
-        final CacheControl requestCacheControl = cache.cachedRequestCacheControl.parse(requestCacheControlHeaderValue);
-
-        if (requestCacheControl.contains(MIN_FRESH))
-        {
-            Instant staleAt = staleAt();
-            final String minFresh = requestCacheControl.getValue(MIN_FRESH);
-            return now.plusSeconds(parseInt(minFresh)).isBefore(staleAt);
-        }
-        return true;
+        final int minFresh = requestCacheControl.minFresh();
+        return minFresh == NO_VALUE || now + minFresh * 1000L < staleAt;
     }
 
     private boolean satisfiesStalenessRequirementsOf(
-        Array32FW<HttpHeaderFW> request,
-        Instant now)
+        CacheControlParser requestCacheControl,
+        long now)
     {
-        final String requestCacheControlHeaderValue = getHeader(request, CACHE_CONTROL);
-        final CacheControl requestCacheControl = cache.cachedRequestCacheControl.parse(requestCacheControlHeaderValue);
-
-        Instant staleAt = staleAt();
-        if (requestCacheControl.contains(MAX_STALE))
+        if (requestCacheControl.contains(DIRECTIVE_MAX_STALE))
         {
-            final String maxStale = requestCacheControl.getValue(MAX_STALE);
-            final int maxStaleSec = (maxStale != null) ? parseInt(maxStale) : MAX_VALUE;
-            final Instant acceptable = staleAt.plusSeconds(maxStaleSec);
-            return !now.isAfter(acceptable);
-        }
-        else if (now.isAfter(staleAt))
-        {
-            return false;
+            final int maxStale = requestCacheControl.maxStale();
+            final int maxStaleSec = maxStale != NO_VALUE ? maxStale : MAX_VALUE;
+            return now <= staleAt + maxStaleSec * 1000L;
         }
 
-        return true;
+        return now <= staleAt;
     }
 
     private boolean satisfiesAgeRequirementsOf(
-        Array32FW<HttpHeaderFW> request,
-        Instant now)
+        CacheControlParser requestCacheControl,
+        long now)
     {
-        final String requestCacheControlHeaderValue = getHeader(request, CACHE_CONTROL);
-        final CacheControl requestCacheControl = cache.cachedRequestCacheControl.parse(requestCacheControlHeaderValue);
-
-        if (requestCacheControl.contains(MAX_AGE))
-        {
-            int requestMaxAge = parseInt(requestCacheControl.getValue(MAX_AGE));
-            Instant receivedAt = receivedAt();
-            return !receivedAt.plusSeconds(requestMaxAge).isBefore(now);
-        }
-        return true;
+        final int requestMaxAge = requestCacheControl.maxAge();
+        return requestMaxAge == NO_VALUE || receivedAt + requestMaxAge * 1000L >= now;
     }
 
-    private Instant staleAt()
+    /*
+     * Freshness of the stored response is derived once from its headers, whenever they are stored or
+     * updated, so that serving a request from cache only compares the request directives against it.
+     */
+    private void updateFreshness(
+        Array32FW<HttpHeaderFW> responseHeaders)
     {
-        if (cacheStaleAt == null)
-        {
-            final CacheControl cacheControl = responseCacheControl();
-            final Instant receivedAt = receivedAt();
-            int staleInSeconds = 0;
-
-            final String sMaxAge = cacheControl.getValue(S_MAXAGE);
-            if (sMaxAge != null)
-            {
-                staleInSeconds = parseInt(sMaxAge);
-            }
-            else
-            {
-                final String maxAge = cacheControl.getValue(MAX_AGE);
-                if (maxAge != null)
-                {
-                    staleInSeconds = parseInt(maxAge);
-                }
-            }
-
-            final int surrogateAge = getSurrogateAge(this.getCachedResponseHeaders());
-            staleInSeconds = Math.max(staleInSeconds, surrogateAge);
-
-            cacheStaleAt = receivedAt.plusSeconds(staleInSeconds);
-        }
-
-        return cacheStaleAt;
+        final CacheControlParser responseCacheControl =
+            cache.responseCacheControl.parse(responseHeaders, HAS_CACHE_CONTROL);
+        final CacheControlParser surrogateControl =
+            cache.surrogateControl.parse(responseHeaders, HAS_SURROGATE_CONTROL);
+
+        final int sMaxAge = responseCacheControl.sMaxAge();
+        final int maxAgeValue = sMaxAge != NO_VALUE ? sMaxAge : responseCacheControl.maxAge();
+
+        this.receivedAt = parseReceivedAt(responseHeaders);
+        this.lastModified = getHeader(responseHeaders, HttpHeaders.LAST_MODIFIED);
+        this.lastModifiedAt = lastModified != null ? parseDate(lastModified) : NO_LAST_MODIFIED;
+        this.maxAge = maxAgeValue != NO_VALUE ? maxAgeValue : 0;
+        this.surrogateAge = surrogateControl.maxAge();
+        this.surrogateFreshnessExtension = surrogateControl.freshnessExtension();
+        this.staleIfError = responseCacheControl.staleIfError();
+        this.staleAt = receivedAt + Math.max(maxAge, surrogateAge) * 1000L;
+        this.responseFlags = (responseCacheControl.contains(DIRECTIVE_PUBLIC) ? FLAG_PUBLIC : 0) |
+                             (responseCacheControl.contains(DIRECTIVE_PRIVATE) ? FLAG_PRIVATE : 0) |
+                             (responseCacheControl.contains(DIRECTIVE_S_MAXAGE) ? FLAG_S_MAXAGE : 0) |
+                             (surrogateControl.contains(DIRECTIVE_X_PROTECTED) ? FLAG_PROTECTED : 0);
+
+        cache.scheduleExpiry(this);
     }
 
-    public Instant receivedAt()
+    /*
+     * Responses without a usable Date or Last-Modified header are taken as received now.
+     */
+    private long parseReceivedAt(
+        Array32FW<HttpHeaderFW> responseHeaders)
     {
-        if (cacheReceivedAt == null)
-        {
-            final Array32FW<HttpHeaderFW> responseHeaders = getCachedResponseHeaders();
-            final String dateHeaderValue = getHeader(responseHeaders, HttpHeaders.DATE) != null ?
-                getHeader(responseHeaders, HttpHeaders.DATE) : getHeader(responseHeaders, HttpHeaders.LAST_MODIFIED);
-            try
-            {
-                if (dateHeaderValue != null)
-                {
-                    cacheReceivedAt = DATE_FORMAT.parse(dateHeaderValue).toInstant();
-                }
-                else
-                {
-                    cacheReceivedAt = Instant.EPOCH;
-                }
-            }
-            catch (Exception e)
-            {
-                cacheReceivedAt = Instant.EPOCH;
-            }
-        }
-
-        return cacheReceivedAt;
+        final HttpHeaderFW date = responseHeaders.matchFirst(HAS_DATE);
+        final HttpHeaderFW dateHeader = date != null ? date : responseHeaders.matchFirst(HAS_LAST_MODIFIED);
+        final long receivedAt = dateHeader != null ? HttpDate.parse(dateHeader.value()) : INVALID_DATE;
+        return receivedAt != INVALID_DATE ? receivedAt : cache.clock.millis();
     }
 
-    private void resetCacheTiming()
+    private static long parseDate(
+        String value)
     {
-        cacheStaleAt = null;
-        cacheReceivedAt = null;
+        final long date = HttpDate.parse(value);
+        return date != INVALID_DATE ? date : NO_LAST_MODIFIED;
     }
-
 }
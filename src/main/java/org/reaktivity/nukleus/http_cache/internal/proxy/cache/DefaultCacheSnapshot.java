@@ -0,0 +1,446 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.agrona.BitUtil.SIZE_OF_BYTE;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.agrona.BitUtil.SIZE_OF_SHORT;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry.NUM_OF_HEADER_SLOTS;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.LongArrayList;
+import org.reaktivity.nukleus.buffer.BufferPool;
+import org.reaktivity.nukleus.http_cache.internal.HttpCacheCounters;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
+import org.reaktivity.nukleus.http_cache.internal.types.stream.HttpBeginExFW;
+
+/**
+ * Snapshot of completed cache entries in a local file, so a restarted nukleus starts with a warm cache.
+ * Each entry is written as one record, framed by its length and checksum, and reloading stops at the
+ * first record that fails its checksum. Freshness is derived from the stored response headers, so it is
+ * still evaluated against the current time after reloading.
+ * The snapshot is written a few records per duty cycle, and replaces the previous one once complete.
+ * It is not forced to disk, since a torn file is detected by the record checksums when reloading.
+ */
+public final class DefaultCacheSnapshot
+{
+    private static final int MAGIC = 0x48544343;
+    private static final int VERSION = 4;
+
+    private static final int FLAG_COMPLETED = 0x01;
+    private static final int FLAG_VALIDATION_REQUIRED = 0x02;
+
+    private static final int FRAME_HEADER_SIZE = SIZE_OF_INT + SIZE_OF_INT;
+    private static final int NULL_LENGTH = -1;
+    private static final int WRITE_LIMIT = 16;
+
+    private final Array32FW<HttpHeaderFW> requestHeadersRO = new HttpBeginExFW().headers();
+    private final Array32FW<HttpHeaderFW> responseHeadersRO = new HttpBeginExFW().headers();
+    private final OctetsFW payloadRO = new OctetsFW();
+
+    private final ExpandableDirectByteBuffer frame = new ExpandableDirectByteBuffer(0x10000);
+    private final CRC32 checksum = new CRC32();
+    private final LongArrayList pendingHashes = new LongArrayList();
+
+    private final DefaultCache cache;
+    private final Path path;
+    private final Path tempPath;
+    private final long interval;
+    private final HttpCacheCounters counters;
+
+    private long writeAt;
+    private FileChannel channel;
+    private int pendingIndex;
+
+    public DefaultCacheSnapshot(
+        DefaultCache cache,
+        Path path,
+        long interval,
+        HttpCacheCounters counters)
+    {
+        this.cache = cache;
+        this.path = path;
+        this.tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.interval = interval;
+        this.counters = counters;
+    }
+
+    public int writeIfNecessary(
+        long now)
+    {
+        int workCount = 0;
+
+        if (channel != null)
+        {
+            workCount = writeRecords(WRITE_LIMIT);
+        }
+        else if (writeAt == 0L)
+        {
+            writeAt = now + interval;
+        }
+        else if (now >= writeAt)
+        {
+            writeAt = now + interval;
+            workCount = beginWrite();
+        }
+
+        return workCount;
+    }
+
+    public void write()
+    {
+        if (channel == null)
+        {
+            beginWrite();
+        }
+
+        while (channel != null)
+        {
+            writeRecords(WRITE_LIMIT);
+        }
+    }
+
+    /*
+     * Only the request hashes of completed entries are taken up front, each entry is looked up again
+     * when its record is written, skipping entries purged or refreshing in the meantime.
+     */
+    private int beginWrite()
+    {
+        try
+        {
+            channel = FileChannel.open(tempPath, CREATE, WRITE, TRUNCATE_EXISTING);
+
+            frame.putInt(0, MAGIC);
+            frame.putInt(SIZE_OF_INT, VERSION);
+            writeFully(channel, 0, SIZE_OF_INT + SIZE_OF_INT);
+
+            for (DefaultCacheEntry entry : cache.entries())
+            {
+                if (entry.isResponseCompleted())
+                {
+                    pendingHashes.addLong(entry.requestHash());
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            abortWrite();
+        }
+
+        return 1;
+    }
+
+    private int writeRecords(
+        int limit)
+    {
+        int written = 0;
+
+        try
+        {
+            while (written < limit && pendingIndex < pendingHashes.size())
+            {
+                final DefaultCacheEntry entry = cache.get(pendingHashes.getLong(pendingIndex++));
+                if (entry != null && entry.isResponseCompleted())
+                {
+                    final int recordSize = encodeRecord(entry, FRAME_HEADER_SIZE);
+                    frame.putInt(0, recordSize);
+                    frame.putInt(SIZE_OF_INT, checksum(FRAME_HEADER_SIZE, recordSize));
+                    writeFully(channel, 0, FRAME_HEADER_SIZE + recordSize);
+                    written++;
+                }
+            }
+
+            if (pendingIndex == pendingHashes.size())
+            {
+                endWrite();
+                Files.move(tempPath, path, REPLACE_EXISTING, ATOMIC_MOVE);
+                counters.snapshotWrites.getAsLong();
+            }
+        }
+        catch (IOException ex)
+        {
+            abortWrite();
+        }
+
+        return Math.max(written, 1);
+    }
+
+    private void abortWrite()
+    {
+        try
+        {
+            endWrite();
+        }
+        catch (IOException ex)
+        {
+            // the snapshot has failed already
+        }
+        counters.snapshotFailures.getAsLong();
+    }
+
+    private void endWrite() throws IOException
+    {
+        final FileChannel channel = this.channel;
+        this.channel = null;
+        pendingHashes.clear();
+        pendingIndex = 0;
+
+        if (channel != null)
+        {
+            channel.close();
+        }
+    }
+
+    public void restore()
+    {
+        if (!Files.exists(path))
+        {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, READ))
+        {
+            if (!readFully(channel, 0, SIZE_OF_INT + SIZE_OF_INT) ||
+                frame.getInt(0) != MAGIC ||
+                frame.getInt(SIZE_OF_INT) != VERSION)
+            {
+                counters.snapshotFailures.getAsLong();
+                return;
+            }
+
+            while (!cache.isCacheFull() && readFully(channel, 0, FRAME_HEADER_SIZE))
+            {
+                final int recordSize = frame.getInt(0);
+                final int recordChecksum = frame.getInt(SIZE_OF_INT);
+
+                if (recordSize <= 0 ||
+                    !readFully(channel, FRAME_HEADER_SIZE, recordSize) ||
+                    checksum(FRAME_HEADER_SIZE, recordSize) != recordChecksum)
+                {
+                    counters.snapshotFailures.getAsLong();
+                    break;
+                }
+
+                if (decodeRecord(FRAME_HEADER_SIZE))
+                {
+                    counters.snapshotEntriesRestored.getAsLong();
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            counters.snapshotFailures.getAsLong();
+        }
+    }
+
+    private int encodeRecord(
+        DefaultCacheEntry entry,
+        int offset)
+    {
+        final Array32FW<HttpHeaderFW> requestHeaders = entry.getRequestHeaders();
+        final Array32FW<HttpHeaderFW> responseHeaders = entry.getCachedResponseHeaders();
+        final int flags = (entry.isResponseCompleted() ? FLAG_COMPLETED : 0) |
+                          (entry.isValidationRequired() ? FLAG_VALIDATION_REQUIRED : 0);
+
+        int progress = offset;
+        frame.putLong(progress, entry.requestHash());
+        progress += SIZE_OF_LONG;
+        frame.putLong(progress, entry.primaryHash());
+        progress += SIZE_OF_LONG;
+        frame.putInt(progress, entry.requestHashWithoutQuery());
+        progress += SIZE_OF_INT;
+        frame.putShort(progress, entry.authScope());
+        progress += SIZE_OF_SHORT;
+        frame.putByte(progress, (byte) flags);
+        progress += SIZE_OF_BYTE;
+
+        final String etag = entry.etag();
+        if (etag != null)
+        {
+            final byte[] etagBytes = etag.getBytes(UTF_8);
+            frame.putInt(progress, etagBytes.length);
+            progress += SIZE_OF_INT;
+            frame.putBytes(progress, etagBytes);
+            progress += etagBytes.length;
+        }
+        else
+        {
+            frame.putInt(progress, NULL_LENGTH);
+            progress += SIZE_OF_INT;
+        }
+
+        frame.putInt(progress, requestHeaders.sizeof());
+        progress += SIZE_OF_INT;
+        frame.putBytes(progress, requestHeaders.buffer(), requestHeaders.offset(), requestHeaders.sizeof());
+        progress += requestHeaders.sizeof();
+
+        frame.putInt(progress, responseHeaders.sizeof());
+        progress += SIZE_OF_INT;
+        frame.putBytes(progress, responseHeaders.buffer(), responseHeaders.offset(), responseHeaders.sizeof());
+        progress += responseHeaders.sizeof();
+
+        final BufferPool responsePool = entry.responsePool();
+        final IntArrayList responseSlots = entry.getResponseSlots();
+
+        int remaining = entry.responseSize();
+        frame.putInt(progress, remaining);
+        progress += SIZE_OF_INT;
+        for (int i = NUM_OF_HEADER_SLOTS; remaining > 0; i++)
+        {
+            final int length = Math.min(entry.responseSlotLimit(i), remaining);
+            final MutableDirectBuffer buffer = responsePool.buffer(responseSlots.getInt(i));
+            frame.putBytes(progress, buffer, 0, length);
+            progress += length;
+            remaining -= length;
+        }
+
+        return progress - offset;
+    }
+
+    private boolean decodeRecord(
+        int offset)
+    {
+        int progress = offset;
+        final long requestHash = frame.getLong(progress);
+        progress += SIZE_OF_LONG;
+        final long primaryHash = frame.getLong(progress);
+        progress += SIZE_OF_LONG;
+        final int requestHashWithoutQuery = frame.getInt(progress);
+        progress += SIZE_OF_INT;
+        final short authScope = frame.getShort(progress);
+        progress += SIZE_OF_SHORT;
+        final int flags = frame.getByte(progress);
+        progress += SIZE_OF_BYTE;
+
+        String etag = null;
+        final int etagLength = frame.getInt(progress);
+        progress += SIZE_OF_INT;
+        if (etagLength != NULL_LENGTH)
+        {
+            etag = frame.getStringWithoutLengthUtf8(progress, etagLength);
+            progress += etagLength;
+        }
+
+        final int requestHeadersSize = frame.getInt(progress);
+        progress += SIZE_OF_INT;
+        final Array32FW<HttpHeaderFW> requestHeaders =
+            requestHeadersRO.wrap(frame, progress, progress + requestHeadersSize);
+        progress += requestHeadersSize;
+
+        final int responseHeadersSize = frame.getInt(progress);
+        progress += SIZE_OF_INT;
+        final Array32FW<HttpHeaderFW> responseHeaders =
+            responseHeadersRO.wrap(frame, progress, progress + responseHeadersSize);
+        progress += responseHeadersSize;
+
+        final int responseSize = frame.getInt(progress);
+        progress += SIZE_OF_INT;
+        final OctetsFW payload = payloadRO.wrap(frame, progress, progress + responseSize);
+
+        final DefaultCacheEntry entry = cache.supply(requestHash, primaryHash, authScope, requestHashWithoutQuery);
+        final boolean stored = entry.storeRequestHeaders(requestHeaders) &&
+                               entry.storeResponseHeaders(responseHeaders) &&
+                               entry.storeResponseData(payload);
+
+        if (stored)
+        {
+            entry.setEtag(etag);
+            entry.setResponseCompleted((flags & FLAG_COMPLETED) != 0);
+            if ((flags & FLAG_VALIDATION_REQUIRED) != 0)
+            {
+                entry.invalidate();
+            }
+        }
+        else
+        {
+            cache.purge(requestHash);
+        }
+
+        return stored;
+    }
+
+    private int checksum(
+        int offset,
+        int length)
+    {
+        final ByteBuffer byteBuffer = frame.byteBuffer().duplicate();
+        byteBuffer.clear();
+        byteBuffer.position(offset);
+        byteBuffer.limit(offset + length);
+
+        checksum.reset();
+        checksum.update(byteBuffer);
+        return (int) checksum.getValue();
+    }
+
+    private void writeFully(
+        FileChannel channel,
+        int offset,
+        int length) throws IOException
+    {
+        final ByteBuffer byteBuffer = frame.byteBuffer().duplicate();
+        byteBuffer.clear();
+        byteBuffer.position(offset);
+        byteBuffer.limit(offset + length);
+
+        while (byteBuffer.hasRemaining())
+        {
+            channel.write(byteBuffer);
+        }
+    }
+
+    private boolean readFully(
+        FileChannel channel,
+        int offset,
+        int length) throws IOException
+    {
+        frame.checkLimit(offset + length);
+
+        final ByteBuffer byteBuffer = frame.byteBuffer().duplicate();
+        byteBuffer.clear();
+        byteBuffer.position(offset);
+        byteBuffer.limit(offset + length);
+
+        while (byteBuffer.hasRemaining())
+        {
+            if (channel.read(byteBuffer) == -1)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+
+import java.util.function.LongSupplier;
+
+/*
+ * Count-min sketch of 4-bit counters, 16 per long, with 4 hash functions per key.
+ * Counters are halved once the number of increments reaches the sample size,
+ * so the sketch reflects recent popularity rather than all-time popularity (TinyLFU).
+ */
+final class FrequencySketch
+{
+    private static final long[] SEEDS =
+    {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final long ONE_MASK = 0x1111_1111_1111_1111L;
+    private static final int SAMPLE_FACTOR = 10;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final LongSupplier resets;
+
+    private int size;
+
+    FrequencySketch(
+        int maximumEntries,
+        LongSupplier resets)
+    {
+        final int capacity = findNextPositivePowerOfTwo(Math.max(maximumEntries, 16));
+        this.table = new long[capacity];
+        this.tableMask = capacity - 1;
+        this.sampleSize = SAMPLE_FACTOR * capacity;
+        this.resets = resets;
+    }
+
+    int frequency(
+        long key)
+    {
+        final int hash = spread(key);
+        final int start = (hash & 3) << 2;
+
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++)
+        {
+            final int index = indexOf(hash, i);
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(
+        long key)
+    {
+        final int hash = spread(key);
+        final int start = (hash & 3) << 2;
+
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++)
+        {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++size == sampleSize)
+        {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(
+        int index,
+        int counter)
+    {
+        final int offset = counter << 2;
+        final long mask = 0xfL << offset;
+        final boolean saturated = (table[index] & mask) == mask;
+        if (!saturated)
+        {
+            table[index] += 1L << offset;
+        }
+        return !saturated;
+    }
+
+    private void reset()
+    {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++)
+        {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+        resets.getAsLong();
+    }
+
+    private int indexOf(
+        int hash,
+        int row)
+    {
+        long index = (hash + SEEDS[row]) * SEEDS[row];
+        index += index >>> 32;
+        return (int) index & tableMask;
+    }
+
+    private static int spread(
+        long key)
+    {
+        int hash = (int) (key ^ (key >>> 32));
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
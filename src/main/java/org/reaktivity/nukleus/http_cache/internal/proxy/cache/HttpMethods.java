@@ -18,6 +18,7 @@ package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 public final class HttpMethods
 {
     public static final String GET = "GET";
+    public static final String HEAD = "HEAD";
 
     private HttpMethods()
     {
@@ -18,7 +18,9 @@ package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 public final class HttpStatus
 {
     public static final String OK_200 = "200";
+    public static final String PARTIAL_CONTENT_206 = "206";
     public static final String NOT_MODIFIED_304 = "304";
+    public static final String RANGE_NOT_SATISFIABLE_416 = "416";
     public static final String SERVICE_UNAVAILABLE_503 = "503";
 
     private HttpStatus()
@@ -15,44 +15,47 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_NONE_MATCH;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.PREFER;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.PREFERENCE_APPLIED;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_IF_NONE_MATCH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_PREFER;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_PREFERENCE_APPLIED;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.startsWithIgnoreCase;
 
-import java.util.function.Predicate;
-
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersIndex;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 
 public final class PreferHeader
 {
+    private static final byte[] WAIT_PREFIX = "wait=".getBytes(US_ASCII);
+
     public static boolean isPreferIfNoneMatch(
         Array32FW<HttpHeaderFW> headers)
     {
-        return getHeader(headers, IF_NONE_MATCH) != null &&
-               headers.anyMatch(PREFER_HEADER_NAME);
+        return headers.anyMatch(HAS_IF_NONE_MATCH) &&
+               headers.anyMatch(HAS_PREFER);
     }
 
     public static boolean isPreferWait(
         Array32FW<HttpHeaderFW> headers)
     {
-        String prefer = getHeader(headers, PREFER);
-        return prefer != null && prefer.toLowerCase().startsWith("wait=");
+        final HttpHeaderFW prefer = headers.matchFirst(HAS_PREFER);
+        return prefer != null && startsWithIgnoreCase(prefer.value(), WAIT_PREFIX);
     }
 
-    public static boolean isPreferenceApplied(
-        Array32FW<HttpHeaderFW> headers)
+    public static boolean isPreferWait(
+        HttpHeadersIndex headers)
     {
-        String preferenceApplied = getHeader(headers, PREFERENCE_APPLIED);
-        return preferenceApplied != null;
+        return headers.startsWithIgnoreCase(HttpHeadersIndex.PREFER, WAIT_PREFIX);
     }
 
-    public static final Predicate<? super HttpHeaderFW> PREFER_HEADER_NAME = h ->
+    public static boolean isPreferenceApplied(
+        Array32FW<HttpHeaderFW> headers)
     {
-        final String name = h.name().asString();
-        return PREFER.equals(name);
-    };
+        return headers.anyMatch(HAS_PREFERENCE_APPLIED);
+    }
 
     public static int getPreferWait(Array32FW<HttpHeaderFW> headers)
     {
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.IntArrayList;
+
+public final class RangeHeader
+{
+    public static final int MAXIMUM_RANGES = 16;
+
+    private static final String BYTES_UNIT = "bytes=";
+    private static final String CONTENT_RANGE_UNIT = "bytes ";
+    private static final String WEAK_PREFIX = "W/";
+
+    /*
+     * Parses a byte ranges specifier (RFC 7233) against a representation of the given length, into
+     * pairs of start and end offsets, with the end offset exclusive.
+     *
+     * @return the number of satisfiable ranges, or -1 if the specifier should be ignored
+     */
+    public static int parseRanges(
+        String range,
+        int length,
+        IntArrayList ranges)
+    {
+        ranges.clear();
+
+        if (range == null || !range.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length()))
+        {
+            return -1;
+        }
+
+        int specs = 0;
+        int position = BYTES_UNIT.length();
+        while (position <= range.length())
+        {
+            final int comma = range.indexOf(',', position);
+            final int specEnd = comma != -1 ? comma : range.length();
+            final String spec = range.substring(position, specEnd).trim();
+            position = specEnd + 1;
+
+            if (spec.isEmpty())
+            {
+                continue;
+            }
+
+            final int dash = spec.indexOf('-');
+            if (dash == -1 || ++specs > MAXIMUM_RANGES)
+            {
+                return -1;
+            }
+
+            try
+            {
+                if (dash == 0)
+                {
+                    final long suffix = Long.parseLong(spec.substring(1).trim());
+                    if (suffix < 0L)
+                    {
+                        return -1;
+                    }
+
+                    if (suffix > 0L && length > 0)
+                    {
+                        ranges.addInt(length - (int) Math.min(suffix, length));
+                        ranges.addInt(length);
+                    }
+                }
+                else
+                {
+                    final long first = Long.parseLong(spec.substring(0, dash).trim());
+                    final String lastValue = spec.substring(dash + 1).trim();
+                    final long last = lastValue.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastValue);
+                    if (first < 0L || last < first)
+                    {
+                        return -1;
+                    }
+
+                    if (first < length)
+                    {
+                        ranges.addInt((int) first);
+                        ranges.addInt(last < length ? (int) last + 1 : length);
+                    }
+                }
+            }
+            catch (NumberFormatException ex)
+            {
+                return -1;
+            }
+        }
+
+        return specs != 0 ? ranges.size() >> 1 : -1;
+    }
+
+    /*
+     * If-Range (RFC 7233) matches only a strong entity tag, or the exact Last-Modified date.
+     */
+    public static boolean matchesIfRange(
+        String ifRange,
+        String etag,
+        String lastModified)
+    {
+        boolean matches = true;
+
+        if (ifRange != null)
+        {
+            if (ifRange.startsWith("\""))
+            {
+                matches = etag != null && !etag.startsWith(WEAK_PREFIX) && ifRange.equals(etag);
+            }
+            else
+            {
+                matches = !ifRange.startsWith(WEAK_PREFIX) && ifRange.equals(lastModified);
+            }
+        }
+
+        return matches;
+    }
+
+    /*
+     * Parses the first byte position of a satisfied Content-Range (RFC 7233), such as "bytes 0-99/1000".
+     *
+     * @return the first byte position, or -1 if the content range is not a satisfied byte range
+     */
+    public static int contentRangeStart(
+        String contentRange)
+    {
+        int start = -1;
+
+        if (contentRange != null && contentRange.regionMatches(true, 0, CONTENT_RANGE_UNIT, 0, CONTENT_RANGE_UNIT.length()))
+        {
+            final int dash = contentRange.indexOf('-', CONTENT_RANGE_UNIT.length());
+            final int slash = contentRange.indexOf('/', CONTENT_RANGE_UNIT.length());
+            if (dash != -1 && slash > dash)
+            {
+                start = parseNonNegative(contentRange.substring(CONTENT_RANGE_UNIT.length(), dash));
+            }
+        }
+
+        return start;
+    }
+
+    /*
+     * Parses the complete length of a satisfied Content-Range (RFC 7233), such as "bytes 0-99/1000".
+     *
+     * @return the complete length, or -1 if the content range is not a byte range of known length
+     */
+    public static int contentRangeLength(
+        String contentRange)
+    {
+        int length = -1;
+
+        if (contentRange != null && contentRange.regionMatches(true, 0, CONTENT_RANGE_UNIT, 0, CONTENT_RANGE_UNIT.length()))
+        {
+            final int slash = contentRange.indexOf('/', CONTENT_RANGE_UNIT.length());
+            if (slash != -1)
+            {
+                length = parseNonNegative(contentRange.substring(slash + 1));
+            }
+        }
+
+        return length;
+    }
+
+    private static int parseNonNegative(
+        String value)
+    {
+        try
+        {
+            return Math.max(Integer.parseInt(value.trim()), -1);
+        }
+        catch (NumberFormatException ex)
+        {
+            return -1;
+        }
+    }
+
+    private RangeHeader()
+    {
+        // utility
+    }
+}
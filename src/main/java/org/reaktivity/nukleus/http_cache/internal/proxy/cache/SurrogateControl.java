@@ -15,15 +15,9 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.SURROGATE_CONTROL;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
-
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
-import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
-
 public final class SurrogateControl
 {
     private static final String MAX_AGE = "max-age";
@@ -31,13 +25,6 @@ public final class SurrogateControl
         .compile("\\s*([\\w\\-]+)\\s*(=)?\\s*(\\d+\\+?\\d+|\\d+|\"([^\"\\\\]*(\\\\.[^\"\\\\]*)*)+\")?\\s*");
     private static final String X_PROTECTED = "x-protected";
 
-    public static int getSurrogateFreshnessExtension(
-            Array32FW<HttpHeaderFW> responseHeadersRO)
-    {
-        String surrogateControl = getHeader(responseHeadersRO, SURROGATE_CONTROL);
-        return getSurrogateFreshnessExtension(surrogateControl);
-    }
-
     public static int getSurrogateFreshnessExtension(String headerValue)
     {
         if (headerValue != null)
@@ -65,13 +52,6 @@ public final class SurrogateControl
         return -1;
     }
 
-    public static int getSurrogateAge(
-            Array32FW<HttpHeaderFW> responseHeadersRO)
-    {
-        String surrogateControl = getHeader(responseHeadersRO, SURROGATE_CONTROL);
-        return getSurrogateAge(surrogateControl);
-    }
-
     public static int getSurrogateAge(String headerValue)
     {
         if (headerValue != null)
@@ -95,23 +75,6 @@ public final class SurrogateControl
         return -1;
     }
 
-    public static boolean isProtectedEx(Array32FW<HttpHeaderFW> response)
-    {
-        String surrogateControl = getHeader(response, SURROGATE_CONTROL);
-        if (surrogateControl != null)
-        {
-            Matcher matcher = CACHE_PATTERN.matcher(surrogateControl);
-            while (matcher.find())
-            {
-                if (X_PROTECTED.equals(matcher.group(1)))
-                {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     private SurrogateControl()
     {
         // utility
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream;
+
+import org.agrona.concurrent.Agent;
+
+/*
+ * Duty cycle work of the proxy, run by the reaktor alongside stream handling once a proxy route is assigned.
+ */
+public final class HttpCacheProxyAgent implements Agent
+{
+    private HttpCacheProxyFactory factory;
+
+    void factory(
+        HttpCacheProxyFactory factory)
+    {
+        this.factory = factory;
+    }
+
+    @Override
+    public int doWork()
+    {
+        return factory != null ? factory.doWork() : 0;
+    }
+
+    @Override
+    public String roleName()
+    {
+        return "http-cache";
+    }
+}
@@ -15,27 +15,38 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.stream;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.hasMaxAgeZero;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpMethods.HEAD;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpStatus.RANGE_NOT_SATISFIABLE_416;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpStatus.SERVICE_UNAVAILABLE_503;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader.getPreferWait;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader.isPreferIfNoneMatch;
 import static org.reaktivity.nukleus.http_cache.internal.stream.Signals.PREFER_WAIT_EXPIRED_SIGNAL;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CONTENT_LENGTH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CONTENT_RANGE;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_NONE_MATCH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_RANGE;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.PREFER;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.HAS_EMULATED_PROTOCOL_STACK;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.RANGE;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.hasStatusCode;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_EMULATED_PROTOCOL_STACK;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.METHOD_NAME;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.equalsIgnoreCase;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.authorizationScope;
 
-import java.time.Instant;
 import java.util.concurrent.Future;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.RangeHeader;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersIndex;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
@@ -51,8 +62,10 @@ import org.reaktivity.nukleus.http_cache.internal.types.stream.SignalFW;
 
 final class HttpCacheProxyCacheableRequest
 {
+    private static final byte[] HEAD_BYTES = HEAD.getBytes(US_ASCII);
     private static final String8FW HEADER_NAME_STATUS = new String8FW(":status");
     private static final String16FW HEADER_VALUE_STATUS_503 = new String16FW(SERVICE_UNAVAILABLE_503);
+    private static final String16FW HEADER_VALUE_STATUS_416 = new String16FW(RANGE_NOT_SATISFIABLE_416);
 
     private final HttpCacheProxyFactory factory;
     final HttpProxyCacheableRequestGroup requestGroup;
@@ -68,11 +81,16 @@ final class HttpCacheProxyCacheableRequest
     String vary;
     String prefer;
     boolean maxAgeZero;
+    int staleIfError;
+    boolean headRequest;
+    String range;
+    String ifRange;
 
     private Future<?> preferWaitExpired;
     private boolean promiseNextPollRequest;
 
     private int headersSlot = NO_SLOT;
+    private IntArrayList ranges;
 
     HttpCacheProxyCacheableRequest(
         HttpCacheProxyFactory factory,
@@ -97,20 +115,41 @@ final class HttpCacheProxyCacheableRequest
     }
 
     void doCachedResponse(
-        Instant now,
+        long now,
         long traceId)
     {
-        final int requestHash = requestGroup.requestHash();
+        final long requestHash = requestGroup.requestHash();
         final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestHash);
         final HttpCacheProxyCachedResponse response = new HttpCacheProxyCachedResponse(
             factory, reply, routeId, replyId, authorization,
-            cacheEntry, promiseNextPollRequest, requestGroup::detach);
+            cacheEntry, promiseNextPollRequest, headRequest, requestGroup::detach);
 
         response.doResponseBegin(now, traceId);
         requestGroup.attach(response);
         cleanupRequestHeadersIfNecessary();
     }
 
+    boolean canServeStaleIfError()
+    {
+        final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestGroup.requestHash());
+        return cacheEntry != null && cacheEntry.canServeStaleIfError(staleIfError);
+    }
+
+    void doStaleIfErrorResponse(
+        long traceId)
+    {
+        final long requestHash = requestGroup.requestHash();
+        final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestHash);
+        final HttpCacheProxyCachedResponse response = new HttpCacheProxyCachedResponse(
+            factory, reply, routeId, replyId, authorization,
+            cacheEntry, promiseNextPollRequest, headRequest, requestGroup::detach);
+
+        response.doStaleIfErrorResponseBegin(traceId);
+        requestGroup.attach(response);
+        factory.counters.responsesStaleIfError.getAsLong();
+        cleanupRequestHeadersIfNecessary();
+    }
+
     void doNotModifiedResponse(
         long traceId)
     {
@@ -166,6 +205,32 @@ final class HttpCacheProxyCacheableRequest
         return new HttpCacheProxyRelayedResponse(factory, reply, routeId, replyId, sender, senderRouteId, senderReplyId, prefer);
     }
 
+    /*
+     * A HEAD request is sent to the origin as GET, so that its response can fill the cache,
+     * then only the headers are relayed when that response cannot be cached.
+     */
+    void doHeadRelayedResponse(
+        Array32FW<HttpHeaderFW> responseHeaders,
+        long traceId)
+    {
+        factory.writer.doHttpResponse(
+            reply,
+            routeId,
+            replyId,
+            traceId,
+            e -> responseHeaders.forEach(h -> e.item(i -> i.name(h.name()).value(h.value()))));
+
+        factory.writer.doHttpEnd(
+            reply,
+            routeId,
+            replyId,
+            traceId);
+
+        factory.counters.responses.getAsLong();
+        requestGroup.dequeue(this);
+        cleanupRequestHeadersIfNecessary();
+    }
+
     void onRequestMessage(
         int msgTypeId,
         DirectBuffer buffer,
@@ -238,9 +303,13 @@ final class HttpCacheProxyCacheableRequest
             ifNoneMatch = getHeader(headers, IF_NONE_MATCH);
             prefer = getHeader(headers, PREFER);
             maxAgeZero = hasMaxAgeZero(headers);
+            staleIfError = factory.defaultCache.requestStaleIfError(headers);
+            headRequest = equalsIgnoreCase(factory.httpHeadersView.value(headers, METHOD_NAME), HEAD_BYTES);
+            range = headRequest ? null : getHeader(headers, RANGE);
+            ifRange = getHeader(headers, IF_RANGE);
 
 
-            final int requestHash = requestGroup.requestHash();
+            final long requestHash = requestGroup.requestHash();
             final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestHash);
             vary = cacheEntry != null && cacheEntry.getVaryBy() != null ?
                 getHeader(headers, cacheEntry.getVaryBy()) : null;
@@ -277,20 +346,58 @@ final class HttpCacheProxyCacheableRequest
         final Array32FW<HttpHeaderFW> headers = getHeaders();
         final short authScope = authorizationScope(authorization);
         final boolean isCacheEntryUpToDate = isCacheEntryUpdatedToBeServed(headers, authScope, cacheEntry);
+        final HttpHeadersIndex requestHeaders = factory.requestHeadersIndex.wrap(headers);
         final boolean canBeCachedServed =
-            factory.defaultCache.matchCacheableRequest(headers, authScope, requestGroup.requestHash());
-
-        if (canBeCachedServed || isCacheEntryUpToDate)
+            factory.defaultCache.matchCacheableRequest(requestHeaders, authScope, requestGroup.requestHash());
+        final boolean canBeStaleServed = !canBeCachedServed && !isCacheEntryUpToDate &&
+            factory.defaultCache.matchStaleWhileRevalidateRequest(requestHeaders, authScope, requestGroup.requestHash());
+        final boolean canBeSegmentServed = !canBeCachedServed && !isCacheEntryUpToDate && !canBeStaleServed &&
+            factory.defaultCache.matchSegmentRequest(requestHeaders, authScope, requestGroup.requestHash()) &&
+            canServeSegmentResponse();
+
+        if (canBeSegmentServed)
+        {
+            doSegmentResponse(end.traceId());
+            cleanupRequestTimeoutIfNecessary();
+        }
+        else if (canBeCachedServed || isCacheEntryUpToDate || canBeStaleServed)
         {
             final long traceId = end.traceId();
+            final int rangeCount = parseRangesIfNecessary(cacheEntry);
+
+            if (rangeCount == 0)
+            {
+                do416Response(cacheEntry.responseSize(), traceId);
+            }
+            else
+            {
+                final long replyId = factory.supplyReplyId.applyAsLong(initialId);
+                final HttpCacheProxyCachedResponse response = new HttpCacheProxyCachedResponse(
+                    factory, reply, routeId, replyId, authorization,
+                    cacheEntry, promiseNextPollRequest, headRequest, requestGroup::detach);
+                final long now = factory.clock.millis();
+                if (rangeCount > 0)
+                {
+                    response.doRangeResponseBegin(now, ranges, traceId);
+                }
+                else
+                {
+                    response.doResponseBegin(now, traceId);
+                }
+                requestGroup.attach(response);
+            }
+
+            if (canBeStaleServed)
+            {
+                factory.counters.responsesStaleWhileRevalidate.getAsLong();
+                requestGroup.doRefreshRequest(this);
+            }
+            else if (canBeCachedServed &&
+                     factory.defaultCache.matchRefreshAheadRequest(headers, requestGroup.requestHash()))
+            {
+                requestGroup.doRefreshAheadRequest(this);
+            }
 
-            final long replyId = factory.supplyReplyId.applyAsLong(initialId);
-            final HttpCacheProxyCachedResponse response = new HttpCacheProxyCachedResponse(
-                factory, reply, routeId, replyId, authorization,
-                cacheEntry, promiseNextPollRequest, requestGroup::detach);
-            final Instant now = Instant.now();
-            response.doResponseBegin(now, traceId);
-            requestGroup.attach(response);
             cleanupRequestHeadersIfNecessary();
             cleanupRequestTimeoutIfNecessary();
         }
@@ -300,12 +407,88 @@ final class HttpCacheProxyCacheableRequest
         }
     }
 
+    /*
+     * A single byte range of a sparse entry is served once the segments stored so far cover it.
+     */
+    boolean canServeSegmentResponse()
+    {
+        final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestGroup.requestHash());
+
+        boolean canServe = false;
+        if (range != null &&
+            cacheEntry != null &&
+            cacheEntry.isSparse() &&
+            RangeHeader.matchesIfRange(ifRange, cacheEntry.etag(), cacheEntry.lastModified()))
+        {
+            final IntArrayList segment = new IntArrayList();
+            canServe = RangeHeader.parseRanges(range, cacheEntry.representationSize(), segment) == 1 &&
+                       cacheEntry.hasSegment(segment.getInt(0), segment.getInt(1));
+            if (canServe)
+            {
+                ranges = segment;
+            }
+        }
+        return canServe;
+    }
+
+    void doSegmentResponse(
+        long traceId)
+    {
+        final long requestHash = requestGroup.requestHash();
+        final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestHash);
+        final HttpCacheProxyCachedResponse response = new HttpCacheProxyCachedResponse(
+            factory, reply, routeId, replyId, authorization,
+            cacheEntry, promiseNextPollRequest, headRequest, requestGroup::detach);
+
+        response.doRangeResponseBegin(factory.clock.millis(), ranges, traceId);
+        requestGroup.attach(response);
+        cleanupRequestHeadersIfNecessary();
+    }
+
+    private int parseRangesIfNecessary(
+        DefaultCacheEntry cacheEntry)
+    {
+        int rangeCount = -1;
+        if (range != null &&
+            cacheEntry.isResponseCompleted() &&
+            hasStatusCode(cacheEntry.getCachedResponseHeaders(), 200) &&
+            RangeHeader.matchesIfRange(ifRange, cacheEntry.etag(), cacheEntry.lastModified()))
+        {
+            ranges = new IntArrayList();
+            rangeCount = RangeHeader.parseRanges(range, cacheEntry.responseSize(), ranges);
+        }
+
+        return rangeCount;
+    }
+
+    private void do416Response(
+        int size,
+        long traceId)
+    {
+        factory.writer.doHttpResponse(
+            reply,
+            routeId,
+            replyId,
+            traceId,
+            e -> e.item(h -> h.name(HEADER_NAME_STATUS).value(HEADER_VALUE_STATUS_416))
+                  .item(h -> h.name(CONTENT_RANGE).value("bytes */" + size)));
+
+        factory.writer.doHttpEnd(
+            reply,
+            routeId,
+            replyId,
+            traceId);
+
+        factory.counters.responses.getAsLong();
+    }
+
     private boolean isCacheEntryUpdatedToBeServed(
         Array32FW<HttpHeaderFW> headers,
         short authScope,
         DefaultCacheEntry cacheEntry)
     {
         return cacheEntry != null &&
+               !cacheEntry.isSparse() &&
                hasMaxAgeZero(headers) &&
                requestGroup.hasQueuedRequests() &&
                (ifNoneMatch == null || ifNoneMatch.equals(requestGroup.ifNoneMatchHeader())) &&
@@ -376,6 +559,8 @@ final class HttpCacheProxyCacheableRequest
     private void onResponseSignal(
         SignalFW signal)
     {
+        factory.clock.update();
+
         final long traceId = signal.traceId();
         final int signalId = signal.signalId();
 
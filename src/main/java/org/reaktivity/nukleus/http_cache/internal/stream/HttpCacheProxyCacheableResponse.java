@@ -17,7 +17,6 @@ package org.reaktivity.nukleus.http_cache.internal.stream;
 
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.ETAG;
 
-import java.time.Instant;
 import java.util.function.LongConsumer;
 
 import org.agrona.DirectBuffer;
@@ -50,7 +49,7 @@ final class HttpCacheProxyCacheableResponse
 
     private String ifNoneMatch;
     private int replyBudget;
-    private Instant responseAt;
+    private long responseAt;
     private long retryAfter = NO_RETRY_AFTER;
 
     HttpCacheProxyCacheableResponse(
@@ -126,9 +125,8 @@ final class HttpCacheProxyCacheableResponse
         final boolean stored = cacheEntry.storeResponseHeaders(headers);
         assert stored;
 
-        final Instant receivedAt = cacheEntry.receivedAt();
-        final Instant now = Instant.now();
-        responseAt = receivedAt.isBefore(now) ? receivedAt : now;
+        final long receivedAt = cacheEntry.receivedAt();
+        responseAt = Math.min(receivedAt, factory.clock.millis());
         requestGroup.cacheEntry(cacheEntry);
 
         final boolean hasEtagHeader = cacheEntry.etag() != null;
@@ -136,7 +134,7 @@ final class HttpCacheProxyCacheableResponse
             factory.defaultCache.checkTrailerToRetry(ifNoneMatch,
                                                      cacheEntry))
         {
-            retryAfter = HttpHeadersUtil.retryAfter(cacheEntry.getCachedResponseHeaders());
+            retryAfter = HttpHeadersUtil.retryAfter(cacheEntry.getCachedResponseHeaders(), factory.clock.millis());
         }
 
         if (hasEtagHeader && retryAfter == NO_RETRY_AFTER)
@@ -189,7 +187,7 @@ final class HttpCacheProxyCacheableResponse
             factory.defaultCache.checkTrailerToRetry(ifNoneMatch,
                                                      cacheEntry))
         {
-            retryAfter = HttpHeadersUtil.retryAfter(cacheEntry.getCachedResponseHeaders());
+            retryAfter = HttpHeadersUtil.retryAfter(cacheEntry.getCachedResponseHeaders(), factory.clock.millis());
         }
 
         if (retryAfter != NO_RETRY_AFTER)
@@ -213,8 +211,11 @@ final class HttpCacheProxyCacheableResponse
     private void onResponseAbort(
         AbortFW abort)
     {
-        final int requestHash = requestGroup.requestHash();
-        factory.defaultCache.purge(requestHash);
+        if (!cacheEntry.restoreRetainedResponse())
+        {
+            final long requestHash = requestGroup.requestHash();
+            factory.defaultCache.purge(requestHash);
+        }
 
         final long traceId = abort.traceId();
         cleanupRequest.run();
@@ -17,6 +17,7 @@ package org.reaktivity.nukleus.http_cache.internal.stream;
 
 import org.agrona.DirectBuffer;
 import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
@@ -35,12 +36,18 @@ final class HttpCacheProxyCachedNotModifiedRequest
     private final long acceptReplyId;
     private final long acceptInitialId;
     private final int initialWindow;
+    private final long requestHash;
+    private final boolean notModifiedSince;
+
+    private boolean responseEnded;
 
     HttpCacheProxyCachedNotModifiedRequest(
         HttpCacheProxyFactory factory,
         MessageConsumer acceptReply,
         long acceptRouteId,
-        long acceptInitialId)
+        long acceptInitialId,
+        long requestHash,
+        boolean notModifiedSince)
     {
         this.factory = factory;
         this.acceptReply = acceptReply;
@@ -48,6 +55,8 @@ final class HttpCacheProxyCachedNotModifiedRequest
         this.acceptInitialId = acceptInitialId;
         this.acceptReplyId = factory.supplyReplyId.applyAsLong(acceptInitialId);
         this.initialWindow = factory.initialWindowSize;
+        this.requestHash = requestHash;
+        this.notModifiedSince = notModifiedSince;
     }
 
     void onRequestMessage(
@@ -100,11 +109,28 @@ final class HttpCacheProxyCachedNotModifiedRequest
 
         factory.router.setThrottle(acceptReplyId, this::onResponseMessage);
 
-        factory.writer.do304(acceptReply,
-                             acceptRouteId,
-                             acceptReplyId,
-                             traceId,
-                             requestHeaders);
+        if (notModifiedSince)
+        {
+            final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestHash);
+            factory.defaultCache.send304(requestHash,
+                                         cacheEntry.etag(),
+                                         null,
+                                         acceptReply,
+                                         acceptRouteId,
+                                         acceptReplyId,
+                                         traceId,
+                                         0L,
+                                         false);
+            responseEnded = true;
+        }
+        else
+        {
+            factory.writer.do304(acceptReply,
+                                 acceptRouteId,
+                                 acceptReplyId,
+                                 traceId,
+                                 requestHeaders);
+        }
     }
 
     private void onRequestData(
@@ -122,19 +148,27 @@ final class HttpCacheProxyCachedNotModifiedRequest
     private void onRequestEnd(
         final EndFW end)
     {
-        factory.writer.doHttpEnd(acceptReply,
-                                 acceptRouteId,
-                                 acceptReplyId,
-                                 end.traceId());
+        if (!responseEnded)
+        {
+            factory.writer.doHttpEnd(acceptReply,
+                                     acceptRouteId,
+                                     acceptReplyId,
+                                     end.traceId());
+            responseEnded = true;
+        }
     }
 
     private void onRequestAbort(
         final AbortFW abort)
     {
-        factory.writer.doAbort(acceptReply,
-                               acceptRouteId,
-                               acceptReplyId,
-                               abort.traceId());
+        if (!responseEnded)
+        {
+            factory.writer.doAbort(acceptReply,
+                                   acceptRouteId,
+                                   acceptReplyId,
+                                   abort.traceId());
+            responseEnded = true;
+        }
     }
 
     private void onResponseMessage(
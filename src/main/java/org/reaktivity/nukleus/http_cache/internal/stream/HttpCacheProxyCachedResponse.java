@@ -15,16 +15,20 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.stream;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.reaktivity.nukleus.budget.BudgetDebitor.NO_DEBITOR_INDEX;
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry.NUM_OF_HEADER_SLOTS;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.RESPONSE_IS_STALE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.REVALIDATION_FAILED;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry.NO_GENERATION;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CONTENT_TYPE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
 
-import java.time.Instant;
 import java.util.function.Consumer;
 
 import org.agrona.DirectBuffer;
-import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.budget.BudgetDebitor;
-import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
@@ -43,6 +47,7 @@ final class HttpCacheProxyCachedResponse
     private final long replyId;
     private final long authorization;
     private final boolean promiseNextPollRequest;
+    private final boolean headersOnly;
 
     private int replyBudget;
     private int replyPadding;
@@ -51,8 +56,15 @@ final class HttpCacheProxyCachedResponse
     private long replyDebitorIndex = NO_DEBITOR_INDEX;
 
     private int responseProgress = -1;
+    private int responseGeneration = NO_GENERATION;
     private Consumer<HttpCacheProxyCachedResponse> resetHandler;
 
+    private IntArrayList ranges;
+    private DirectBuffer[] partHeaders;
+    private DirectBuffer partsTrailer;
+    private int rangePiece;
+    private int rangePieces;
+
     HttpCacheProxyCachedResponse(
         HttpCacheProxyFactory factory,
         MessageConsumer reply,
@@ -61,6 +73,7 @@ final class HttpCacheProxyCachedResponse
         long authorization,
         DefaultCacheEntry cacheEntry,
         boolean promiseNextPollRequest,
+        boolean headersOnly,
         Consumer<HttpCacheProxyCachedResponse> resetHandler)
     {
         this.factory = factory;
@@ -70,6 +83,7 @@ final class HttpCacheProxyCachedResponse
         this.authorization = authorization;
         this.cacheEntry = cacheEntry;
         this.promiseNextPollRequest = promiseNextPollRequest;
+        this.headersOnly = headersOnly;
         this.resetHandler = resetHandler;
     }
 
@@ -98,7 +112,80 @@ final class HttpCacheProxyCachedResponse
     }
 
     void doResponseBegin(
-        Instant now,
+        long now,
+        long traceId)
+    {
+        final String warning = cacheEntry.isStale(now) ? RESPONSE_IS_STALE : null;
+        doResponseBegin(warning, traceId);
+    }
+
+    /*
+     * Serves byte ranges of the completed cached response, or of its stored segments, as a single part
+     * or as multipart/byteranges, each range being a pair of start and end offsets with the end offset exclusive.
+     */
+    void doRangeResponseBegin(
+        long now,
+        IntArrayList ranges,
+        long traceId)
+    {
+        final Array32FW<HttpHeaderFW> responseHeaders = cacheEntry.getCachedResponseHeaders();
+        final Array32FW<HttpHeaderFW> requestHeaders = cacheEntry.getRequestHeaders();
+        final String warning = cacheEntry.isStale(now) ? RESPONSE_IS_STALE : null;
+        final int size = cacheEntry.representationSize();
+        final int rangeCount = ranges.size() >> 1;
+
+        this.ranges = ranges;
+        factory.router.setThrottle(replyId, this::onResponseMessage);
+
+        if (rangeCount == 1)
+        {
+            final int start = ranges.getInt(0);
+            final int end = ranges.getInt(1);
+            final String contentRange = String.format("bytes %d-%d/%d", start, end - 1, size);
+
+            rangePieces = 1;
+            factory.writer.doHttpPartialResponseWithUpdatedHeaders(reply, routeId, replyId, responseHeaders, requestHeaders,
+                cacheEntry.etag(), warning, null, contentRange, end - start, traceId);
+        }
+        else
+        {
+            final String boundary = String.format("%016x", replyId);
+            final String contentType = getHeader(responseHeaders, CONTENT_TYPE);
+
+            long contentLength = 0L;
+            partHeaders = new DirectBuffer[rangeCount];
+            for (int i = 0; i < rangeCount; i++)
+            {
+                final int start = ranges.getInt(i << 1);
+                final int end = ranges.getInt((i << 1) + 1);
+                final String partHeader = String.format("\r\n--%s\r\n%scontent-range: bytes %d-%d/%d\r\n\r\n",
+                    boundary, contentType != null ? "content-type: " + contentType + "\r\n" : "", start, end - 1, size);
+                partHeaders[i] = new UnsafeBuffer(partHeader.getBytes(US_ASCII));
+                contentLength += partHeaders[i].capacity() + end - start;
+            }
+            partsTrailer = new UnsafeBuffer(String.format("\r\n--%s--\r\n", boundary).getBytes(US_ASCII));
+            contentLength += partsTrailer.capacity();
+
+            rangePieces = (rangeCount << 1) + 1;
+            factory.writer.doHttpPartialResponseWithUpdatedHeaders(reply, routeId, replyId, responseHeaders, requestHeaders,
+                cacheEntry.etag(), warning, "multipart/byteranges; boundary=" + boundary, null, contentLength, traceId);
+        }
+        responseProgress = 0;
+        responseGeneration = cacheEntry.isSparse() ? NO_GENERATION : cacheEntry.acquireResponse();
+
+        factory.counters.responses.getAsLong();
+        factory.counters.responsesCached.getAsLong();
+        factory.counters.responsesPartial.getAsLong();
+    }
+
+    void doStaleIfErrorResponseBegin(
+        long traceId)
+    {
+        doResponseBegin(REVALIDATION_FAILED, traceId);
+    }
+
+    private void doResponseBegin(
+        String warning,
         long traceId)
     {
         Array32FW<HttpHeaderFW> responseHeaders = cacheEntry.getCachedResponseHeaders();
@@ -111,9 +198,10 @@ final class HttpCacheProxyCachedResponse
                                                         responseHeaders,
                                                         requestHeaders,
                                                         cacheEntry.etag(),
-                                                        cacheEntry.isStale(now),
+                                                        warning,
                                                         traceId);
         responseProgress = 0;
+        responseGeneration = cacheEntry.acquireResponse();
 
         factory.counters.responses.getAsLong();
         factory.counters.responsesCached.getAsLong();
@@ -122,7 +210,26 @@ final class HttpCacheProxyCachedResponse
     void doResponseFlush(
         long traceId)
     {
-        final int remaining = cacheEntry.responseSize() - responseProgress;
+        if (headersOnly)
+        {
+            doResponseEnd(traceId);
+            return;
+        }
+
+        if (responseGeneration != NO_GENERATION && !cacheEntry.isResponseAvailable(responseGeneration))
+        {
+            doResponseAbort(traceId);
+            resetHandler.accept(this);
+            return;
+        }
+
+        if (ranges != null)
+        {
+            doRangeResponseFlush(traceId);
+            return;
+        }
+
+        final int remaining = cacheEntry.responseSize(responseGeneration) - responseProgress;
         final int writable = Math.min(replyBudget - replyPadding, remaining);
 
         if (writable > 0)
@@ -140,8 +247,6 @@ final class HttpCacheProxyCachedResponse
             final int writableMax = required - replyPadding;
             if (writableMax > 0)
             {
-                final BufferPool cacheResponsePool = factory.defaultCache.getResponsePool();
-
                 factory.writer.doHttpData(
                     reply,
                     routeId,
@@ -149,7 +254,7 @@ final class HttpCacheProxyCachedResponse
                     traceId,
                     replyDebitorId,
                     required,
-                    p -> buildResponsePayload(responseProgress, writableMax, p, cacheResponsePool));
+                    p -> cacheEntry.buildResponsePayload(responseGeneration, responseProgress, writableMax, p));
 
                 responseProgress += writableMax;
 
@@ -158,12 +263,136 @@ final class HttpCacheProxyCachedResponse
             }
         }
 
-        if (cacheEntry.isResponseCompleted() && responseProgress == cacheEntry.responseSize())
+        if (cacheEntry.isResponseCompleted(responseGeneration) &&
+            responseProgress == cacheEntry.responseSize(responseGeneration))
         {
             doResponseEnd(traceId);
         }
     }
 
+    private void doRangeResponseFlush(
+        long traceId)
+    {
+        while (rangePiece < rangePieces)
+        {
+            final int pieceLength = rangePieceLength(rangePiece);
+            final int writable = Math.min(replyBudget - replyPadding, pieceLength - responseProgress);
+            if (writable <= 0)
+            {
+                break;
+            }
+
+            final int maximum = writable + replyPadding;
+            final int minimum = Math.min(maximum, 1024);
+
+            int claimed = maximum;
+            if (replyDebitorIndex != NO_DEBITOR_INDEX)
+            {
+                claimed = replyDebitor.claim(replyDebitorIndex, replyId, minimum, maximum);
+            }
+
+            final int required = claimed;
+            final int writableMax = required - replyPadding;
+            if (writableMax <= 0)
+            {
+                break;
+            }
+
+            final int piece = rangePiece;
+            final int progress = responseProgress;
+            factory.writer.doHttpData(
+                reply,
+                routeId,
+                replyId,
+                traceId,
+                replyDebitorId,
+                required,
+                p -> buildRangePiece(piece, progress, writableMax, p));
+
+            responseProgress += writableMax;
+            replyBudget -= required;
+            assert replyBudget >= 0;
+
+            if (responseProgress == pieceLength)
+            {
+                rangePiece++;
+                responseProgress = 0;
+            }
+        }
+
+        if (rangePiece == rangePieces)
+        {
+            doResponseEnd(traceId);
+        }
+    }
+
+    private int rangePieceLength(
+        int piece)
+    {
+        int length;
+
+        if (partHeaders == null)
+        {
+            length = ranges.getInt(1) - ranges.getInt(0);
+        }
+        else if (piece == rangePieces - 1)
+        {
+            length = partsTrailer.capacity();
+        }
+        else if ((piece & 1) == 0)
+        {
+            length = partHeaders[piece >> 1].capacity();
+        }
+        else
+        {
+            length = ranges.getInt(piece) - ranges.getInt(piece - 1);
+        }
+
+        return length;
+    }
+
+    private void buildRangePiece(
+        int piece,
+        int progress,
+        int length,
+        OctetsFW.Builder builder)
+    {
+        if (partHeaders == null)
+        {
+            cacheEntry.buildResponsePayload(responseGeneration, ranges.getInt(0) + progress, length, builder);
+        }
+        else if (piece == rangePieces - 1)
+        {
+            builder.put(partsTrailer, progress, length);
+        }
+        else if ((piece & 1) == 0)
+        {
+            builder.put(partHeaders[piece >> 1], progress, length);
+        }
+        else
+        {
+            cacheEntry.buildResponsePayload(responseGeneration, ranges.getInt(piece - 1) + progress, length, builder);
+        }
+    }
+
+    /*
+     * Responses pinned to a stored response keep serving it while it is still available, whereas range
+     * responses over stored segments cannot complete once the response filling them is aborted.
+     */
+    void onGroupResponseAbort(
+        long traceId)
+    {
+        if (responseGeneration == NO_GENERATION)
+        {
+            doResponseAbort(traceId);
+            resetHandler.accept(this);
+        }
+        else
+        {
+            doResponseFlush(traceId);
+        }
+    }
+
     void doResponseAbort(
         long traceId)
     {
@@ -178,7 +407,7 @@ final class HttpCacheProxyCachedResponse
     private void doResponseEnd(
         long traceId)
     {
-        assert responseProgress == cacheEntry.responseSize();
+        assert headersOnly || ranges != null || responseProgress == cacheEntry.responseSize(responseGeneration);
 
         if (promiseNextPollRequest)
         {
@@ -228,46 +457,14 @@ final class HttpCacheProxyCachedResponse
         doResponseFlush(traceId);
     }
 
-    private void buildResponsePayload(
-        int index,
-        int length,
-        OctetsFW.Builder p,
-        BufferPool bp)
-    {
-        final int slotCapacity = bp.slotCapacity();
-        final int startSlot = Math.floorDiv(index, slotCapacity) + NUM_OF_HEADER_SLOTS;
-        buildResponsePayload(index, length, p, bp, startSlot);
-    }
-
-    private void buildResponsePayload(
-        int index,
-        int length,
-        OctetsFW.Builder builder,
-        BufferPool bp,
-        int slotCnt)
+    private void cleanupResponseIfNecessary()
     {
-        if (length == 0)
+        if (responseGeneration != NO_GENERATION)
         {
-            return;
+            cacheEntry.releaseResponse(responseGeneration);
+            responseGeneration = NO_GENERATION;
         }
 
-        final int slotCapacity = bp.slotCapacity();
-        int chunkedWrite = (slotCnt * slotCapacity) - index;
-        int slot = cacheEntry.getResponseSlots().get(slotCnt);
-        if (chunkedWrite > 0)
-        {
-            MutableDirectBuffer buffer = bp.buffer(slot);
-            int offset = slotCapacity - chunkedWrite;
-            int chunkLength = Math.min(chunkedWrite, length);
-            builder.put(buffer, offset, chunkLength);
-            index += chunkLength;
-            length -= chunkLength;
-        }
-        buildResponsePayload(index, length, builder, bp, ++slotCnt);
-    }
-
-    private void cleanupResponseIfNecessary()
-    {
         if (replyDebitorIndex != NO_DEBITOR_INDEX)
         {
             replyDebitor.release(replyDebitorIndex, replyId);
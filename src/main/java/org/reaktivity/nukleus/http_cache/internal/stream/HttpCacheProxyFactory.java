@@ -15,22 +15,24 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.stream;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.Objects.requireNonNull;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.AUTHORIZATION;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.ONLY_IF_CACHED;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.STATUS;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersIndex.AUTHORIZATION;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersIndex.CACHE_CONTROL;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getRequestURL;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.authorizationScope;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.requestHash;
 
 import java.util.function.Function;
 import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.function.ToIntFunction;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
-import org.agrona.collections.Int2ObjectHashMap;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.budget.BudgetDebitor;
@@ -40,11 +42,17 @@ import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.function.MessagePredicate;
 import org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration;
 import org.reaktivity.nukleus.http_cache.internal.HttpCacheCounters;
-import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCache;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheSnapshot;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.CoarseClock;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.CountingBufferPool;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersIndex;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RequestKeyHasher;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.SizedBufferPool;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.Writer;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
@@ -64,6 +72,8 @@ import org.reaktivity.nukleus.stream.StreamFactory;
 
 public class HttpCacheProxyFactory implements StreamFactory
 {
+    private static final byte[] ONLY_IF_CACHED_BYTES = ONLY_IF_CACHED.getBytes(US_ASCII);
+
     private final RouteFW routeRO = new RouteFW();
 
     final BeginFW beginRO = new BeginFW();
@@ -79,6 +89,10 @@ public class HttpCacheProxyFactory implements StreamFactory
     final HttpBeginExFW httpBeginExRO = new HttpBeginExFW();
     final HttpEndExFW httpEndExRO = new HttpEndExFW();
     final Array32FW<HttpHeaderFW> httpHeadersRO = new Array32FW<>(new HttpHeaderFW());
+    final HttpHeadersView httpHeadersView = new HttpHeadersView();
+    final HttpHeadersIndex requestHeadersIndex = new HttpHeadersIndex();
+    final RequestKeyHasher requestKeyHasher = new RequestKeyHasher();
+    final CacheControlParser cacheControlParser = new CacheControlParser();
 
     final BeginFW.Builder beginRW = new BeginFW.Builder();
 
@@ -88,7 +102,8 @@ public class HttpCacheProxyFactory implements StreamFactory
 
     final RouteManager router;
     final Long2ObjectHashMap<Function<HttpBeginExFW, MessageConsumer>> correlations;
-    final Int2ObjectHashMap<HttpProxyCacheableRequestGroup> requestGroups;
+    final Long2ObjectHashMap<HttpProxyCacheableRequestGroup> requestGroups;
+    final LongPredicate isRequestGroupPending;
 
     final LongUnaryOperator supplyInitialId;
     final LongUnaryOperator supplyReplyId;
@@ -100,7 +115,9 @@ public class HttpCacheProxyFactory implements StreamFactory
 
     final Writer writer;
     final DefaultCache defaultCache;
+    final DefaultCacheSnapshot snapshot;
     final HttpCacheCounters counters;
+    final CoarseClock clock;
     final SignalingExecutor executor;
     final int preferWaitMaximum;
     final int initialWindowSize;
@@ -109,13 +126,15 @@ public class HttpCacheProxyFactory implements StreamFactory
         HttpCacheConfiguration config,
         RouteManager router,
         MutableDirectBuffer writeBuffer,
-        BufferPool requestBufferPool,
+        SizedBufferPool requestBufferPool,
         LongUnaryOperator supplyInitialId,
         LongUnaryOperator supplyReplyId,
         LongFunction<BudgetDebitor> supplyDebitor,
         Long2ObjectHashMap<Function<HttpBeginExFW, MessageConsumer>> correlations,
         DefaultCache defaultCache,
+        DefaultCacheSnapshot snapshot,
         HttpCacheCounters counters,
+        CoarseClock clock,
         LongSupplier supplyTraceId,
         ToIntFunction<String> supplyTypeId,
         SignalingExecutor executor)
@@ -136,10 +155,13 @@ public class HttpCacheProxyFactory implements StreamFactory
 
         this.correlations = requireNonNull(correlations);
         this.defaultCache = defaultCache;
+        this.snapshot = snapshot;
 
         this.writer = new Writer(router, supplyTypeId, writeBuffer);
-        this.requestGroups = new Int2ObjectHashMap<>();
+        this.requestGroups = new Long2ObjectHashMap<>();
+        this.isRequestGroupPending = requestGroups::containsKey;
         this.counters = counters;
+        this.clock = clock;
         this.executor = executor;
 
         this.defaultHttpBeginExRO = new HttpBeginExFW.Builder()
@@ -150,8 +172,25 @@ public class HttpCacheProxyFactory implements StreamFactory
 
     }
 
+    /*
+     * Samples the clock once per duty cycle, expires cache entries and advances the snapshot, so that
+     * both keep up while idle and neither runs on stream setup.
+     */
+    int doWork()
+    {
+        final long now = clock.update();
+        int workCount = defaultCache.expireEntries(now, isRequestGroupPending);
+
+        if (snapshot != null)
+        {
+            workCount += snapshot.writeIfNecessary(now);
+        }
+
+        return workCount;
+    }
+
     public HttpProxyCacheableRequestGroup getRequestGroup(
-        int requestHash)
+        long requestHash)
     {
         return requestGroups.get(requestHash);
     }
@@ -246,29 +285,52 @@ public class HttpCacheProxyFactory implements StreamFactory
         long resolveId,
         Array32FW<HttpHeaderFW> headers)
     {
-        final String requestURL = getRequestURL(headers);
-        final boolean isMethodUnsafe = CacheUtils.isMethodUnsafe(headers);
+        final HttpHeadersIndex requestHeaders = requestHeadersIndex.wrap(headers);
+        final boolean isMethodUnsafe = CacheUtils.isMethodUnsafe(requestHeaders);
         final short authorizationScope = authorizationScope(authorization);
-        final int requestHash = requestHash(authorizationScope, requestURL.hashCode());
+        final long primaryHash = requestKeyHasher.hash(authorizationScope, requestHeaders).requestHash();
+        final long requestHash = defaultCache.variantHash(primaryHash, headers);
 
         MessageConsumer newStream = null;
 
-        final boolean isRequestCacheable = defaultCache.isRequestCacheable(headers);
-        final boolean matchCacheableRequest = defaultCache.matchCacheableRequest(headers, authorizationScope, requestHash);
         DefaultCacheEntry cacheEntry = defaultCache.get(requestHash);
 
+        final boolean isRequestKeyMatched = cacheEntry == null || cacheEntry.matchesRequestKey(headers);
+        final boolean isRequestCacheable = isRequestKeyMatched && defaultCache.isRequestCacheable(requestHeaders);
+        if (isRequestCacheable)
+        {
+            defaultCache.recordAccess(requestHash);
+        }
+
+        final boolean matchCacheableRequest = defaultCache.matchCacheableRequest(requestHeaders, authorizationScope, requestHash);
+
         if (isRequestCacheable &&
             matchCacheableRequest &&
-            CacheUtils.isMatchByEtag(headers, cacheEntry.etag()))
+            CacheUtils.isMatchByEtag(requestHeaders, cacheEntry.etag()))
         {
             final HttpCacheProxyCachedNotModifiedRequest cachedNotModifiedRequest =
                 new HttpCacheProxyCachedNotModifiedRequest(this,
                     initial,
                     routeId,
-                    initialId);
+                    initialId,
+                    requestHash,
+                    false);
+            newStream = cachedNotModifiedRequest::onRequestMessage;
+        }
+        else if (isRequestCacheable &&
+                 matchCacheableRequest &&
+                 CacheUtils.isMatchByLastModified(requestHeaders, cacheEntry))
+        {
+            final HttpCacheProxyCachedNotModifiedRequest cachedNotModifiedRequest =
+                new HttpCacheProxyCachedNotModifiedRequest(this,
+                    initial,
+                    routeId,
+                    initialId,
+                    requestHash,
+                    true);
             newStream = cachedNotModifiedRequest::onRequestMessage;
         }
-        else if (headers.anyMatch(CacheDirectives.IS_ONLY_IF_CACHED) && !matchCacheableRequest)
+        else if (requestHeaders.contains(CACHE_CONTROL, ONLY_IF_CACHED_BYTES) && !matchCacheableRequest)
         {
             handleOnlyIfCachedRequest(initial,
                 routeId,
@@ -279,17 +341,16 @@ public class HttpCacheProxyFactory implements StreamFactory
         {
             if (defaultCache.isCacheFull())
             {
-                defaultCache.purgeEntriesForNonPendingRequests(requestGroups.keySet());
+                defaultCache.evictEntries(requestHash, requestGroups::containsKey);
             }
 
             if (!defaultCache.isCacheFull())
             {
                 HttpProxyCacheableRequestGroup group = supplyCacheableRequestGroup(requestHash);
 
-                HttpHeaderFW authorizationHeader = headers.matchFirst(h -> AUTHORIZATION.equals(h.name().asString()));
-                if (authorizationHeader != null)
+                if (requestHeaders.has(AUTHORIZATION))
                 {
-                    group.authorizationHeader(authorizationHeader.value().asString());
+                    group.authorizationHeader(requestHeaders.valueAsString(AUTHORIZATION));
                 }
                 newStream = newCacheableRequestStream(initial,
                     routeId,
@@ -304,8 +365,8 @@ public class HttpCacheProxyFactory implements StreamFactory
                     routeId,
                     initialId,
                     resolveId,
-                    requestURL,
-                    requestHash,
+                    headers,
+                    primaryHash,
                     isMethodUnsafe);
             }
         }
@@ -316,8 +377,8 @@ public class HttpCacheProxyFactory implements StreamFactory
                 routeId,
                 initialId,
                 resolveId,
-                requestURL,
-                requestHash,
+                headers,
+                primaryHash,
                 isMethodUnsafe);
         }
         counters.requests.getAsLong();
@@ -330,17 +391,18 @@ public class HttpCacheProxyFactory implements StreamFactory
         long routeId,
         long initialId,
         long resolveId,
-        String requestURL,
-        int requestHash,
+        Array32FW<HttpHeaderFW> headers,
+        long primaryHash,
         boolean isMethodUnsafe)
     {
+        final String requestURL = isMethodUnsafe ? getRequestURL(headers) : null;
         final HttpCacheProxyNonCacheableRequest nonCacheableRequest =
             new HttpCacheProxyNonCacheableRequest(this,
                                                   initial,
                                                   routeId,
                                                   initialId,
                                                   resolveId,
-                                                  requestHash,
+                                                  primaryHash,
                                                   requestURL,
                                                   isMethodUnsafe);
         final MessageConsumer newStream = nonCacheableRequest::onRequestMessage;
@@ -409,13 +471,13 @@ public class HttpCacheProxyFactory implements StreamFactory
     }
 
     private HttpProxyCacheableRequestGroup supplyCacheableRequestGroup(
-        int requestHash)
+        long requestHash)
     {
         return requestGroups.computeIfAbsent(requestHash, this::newCacheableRequestGroup);
     }
 
     private HttpProxyCacheableRequestGroup newCacheableRequestGroup(
-        int requestHash)
+        long requestHash)
     {
         counters.requestGroups.accept(1);
         return new HttpProxyCacheableRequestGroup(this, requestGroups::remove, requestHash);
@@ -15,6 +15,9 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.stream;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.nio.file.Path;
 import java.util.function.Function;
 import java.util.function.LongConsumer;
 import java.util.function.LongFunction;
@@ -30,7 +33,12 @@ import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration;
 import org.reaktivity.nukleus.http_cache.internal.HttpCacheCounters;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCache;
-import org.reaktivity.nukleus.http_cache.internal.stream.util.HeapBufferPool;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheSnapshot;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.CoarseClock;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.MappedSlab;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RecyclingBufferPool;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.SizeClassSlab;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.SizedBufferPool;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.Slab;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.HttpBeginExFW;
 import org.reaktivity.nukleus.route.RouteManager;
@@ -41,6 +49,7 @@ public class HttpCacheProxyFactoryBuilder implements StreamFactoryBuilder
 {
     private final HttpCacheConfiguration config;
     private final Long2ObjectHashMap<Function<HttpBeginExFW, MessageConsumer>> correlations;
+    private final HttpCacheProxyAgent agent;
 
     private RouteManager router;
     private MutableDirectBuffer writeBuffer;
@@ -49,17 +58,22 @@ public class HttpCacheProxyFactoryBuilder implements StreamFactoryBuilder
     private ToIntFunction<String> supplyTypeId;
     private LongUnaryOperator supplyReplyId;
     private LongFunction<BudgetDebitor> supplyDebitor;
-    private HeapBufferPool requestBufferPool;
+    private RecyclingBufferPool requestBufferPool;
     private DefaultCache defaultCache;
+    private DefaultCacheSnapshot snapshot;
     private Function<String, LongSupplier> supplyCounter;
     private Function<String, LongConsumer> supplyAccumulator;
     private SignalingExecutor executor;
+    private LongSupplier supplyTime;
+    private CoarseClock clock;
 
     public HttpCacheProxyFactoryBuilder(
             HttpCacheConfiguration config)
     {
         this.config = config;
         this.correlations = new Long2ObjectHashMap<>();
+        this.agent = new HttpCacheProxyAgent();
+        this.supplyTime = System::currentTimeMillis;
     }
 
     @Override
@@ -142,6 +156,18 @@ public class HttpCacheProxyFactoryBuilder implements StreamFactoryBuilder
         return this;
     }
 
+    public HttpCacheProxyFactoryBuilder setTimeSupplier(
+        LongSupplier supplyTime)
+    {
+        this.supplyTime = supplyTime;
+        return this;
+    }
+
+    public HttpCacheProxyAgent agent()
+    {
+        return agent;
+    }
+
     @Override
     public StreamFactory build()
     {
@@ -149,32 +175,59 @@ public class HttpCacheProxyFactoryBuilder implements StreamFactoryBuilder
 
         if (defaultCache == null)
         {
+            clock = new CoarseClock(supplyTime);
             final int httpCacheCapacity = config.cacheCapacity();
             final int httpCacheSlotCapacity = config.cacheSlotCapacity();
-            Slab cacheBufferPool = new Slab(httpCacheCapacity, httpCacheSlotCapacity);
-            requestBufferPool = new HeapBufferPool(config.maximumRequests(), httpCacheSlotCapacity);
+            final int httpCacheSlotClasses = config.cacheSlotClasses();
+            SizedBufferPool cacheBufferPool = httpCacheSlotClasses > 1 ?
+                new SizeClassSlab(httpCacheCapacity, httpCacheSlotCapacity, httpCacheSlotClasses,
+                    c -> counters.supplyAccumulator.apply(String.format("http-cache.cache.slots.%d", c))) :
+                new Slab(httpCacheCapacity, httpCacheSlotCapacity);
+            final long httpCacheDiskCapacity = config.diskCapacity();
+            MappedSlab diskBufferPool = httpCacheDiskCapacity != 0L ?
+                new MappedSlab(config.diskPath(), httpCacheDiskCapacity, httpCacheSlotCapacity) : null;
+            requestBufferPool = new RecyclingBufferPool(config.maximumRequests(), config.idleRequests(), httpCacheSlotCapacity,
+                counters.requestSlots);
             defaultCache = new DefaultCache(router,
                                             writeBuffer,
                                             cacheBufferPool,
+                                            diskBufferPool,
                                             counters,
+                                            clock,
                                             supplyTypeId,
                                             config.allowedCachePercentage(),
-                                            config.cacheCapacity());
+                                            SECONDS.toMillis(config.expiryGrace()),
+                                            config.staleIfError(),
+                                            config.refreshAhead(),
+                                            config.etagPrefix());
+
+            final Path snapshotPath = config.snapshotPath();
+            if (snapshotPath != null)
+            {
+                final long snapshotInterval = SECONDS.toMillis(config.snapshotInterval());
+                snapshot = new DefaultCacheSnapshot(defaultCache, snapshotPath, snapshotInterval, counters);
+                snapshot.restore();
+            }
         }
 
-        return new HttpCacheProxyFactory(config,
-                                         router,
-                                         writeBuffer,
-                                         requestBufferPool,
-                                         supplyInitialId,
-                                         supplyReplyId,
-                                         supplyDebitor,
-                                         correlations,
-                                         defaultCache,
-                                         counters,
-                                         supplyTraceId,
-                                         supplyTypeId,
-                                         executor);
+        final HttpCacheProxyFactory factory = new HttpCacheProxyFactory(config,
+                                                                        router,
+                                                                        writeBuffer,
+                                                                        requestBufferPool,
+                                                                        supplyInitialId,
+                                                                        supplyReplyId,
+                                                                        supplyDebitor,
+                                                                        correlations,
+                                                                        defaultCache,
+                                                                        snapshot,
+                                                                        counters,
+                                                                        clock,
+                                                                        supplyTraceId,
+                                                                        supplyTypeId,
+                                                                        executor);
+        agent.factory(factory);
+
+        return factory;
     }
 
 }
@@ -18,10 +18,17 @@ package org.reaktivity.nukleus.http_cache.internal.stream;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.isCacheableResponse;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpMethods.GET;
 import static org.reaktivity.nukleus.http_cache.internal.stream.Signals.GROUP_REQUEST_RETRY_SIGNAL;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.AUTHORIZATION;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CONTENT_RANGE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_MODIFIED_SINCE;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_NONE_MATCH;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getRequestURL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_RANGE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.METHOD;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.RANGE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.hasStatusCode;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.isServerError;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.authorizationScope;
 
 import java.util.concurrent.Future;
@@ -30,9 +37,12 @@ import java.util.function.LongConsumer;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.RangeHeader;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RequestKeyHasher;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.HttpBeginExFW;
@@ -57,6 +67,8 @@ final class HttpCacheProxyGroupRequest
 
     private int attempts;
     private int headersSlot = NO_SLOT;
+    private boolean revalidating;
+    private String segmentRange;
 
     private Future<?> retryRequest;
     private LongConsumer resetHandler = NOOP_RESET_HANDLER;
@@ -122,8 +134,19 @@ final class HttpCacheProxyGroupRequest
         long traceId)
     {
         final Array32FW<HttpHeaderFW> headers = getRequestHeaders();
+        final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestGroup.requestHash());
+        final String ifNoneMatch = requestGroup.ifNoneMatchHeader();
         final int initialState = 0;
 
+        revalidating = request.prefer == null &&
+                       cacheEntry != null &&
+                       cacheEntry.isResponseCompleted() &&
+                       (ifNoneMatch == null || ifNoneMatch.equals(cacheEntry.etag()));
+        final String etag = revalidating && !cacheEntry.isEtagSynthesized() ? cacheEntry.etag() : null;
+        final String lastModified = revalidating ? cacheEntry.lastModified() : null;
+        revalidating &= etag != null || lastModified != null;
+        segmentRange = segmentRange(cacheEntry);
+
         attempts++;
 
         state = HttpCacheRequestState.openingInitial(initialState);
@@ -134,13 +157,15 @@ final class HttpCacheProxyGroupRequest
         factory.router.setThrottle(initialId, this::onRequestMessage);
         final long authorization = 0; // TODO: request.authorization
         factory.writer.doHttpRequest(initial, routeId, initialId, traceId, authorization,
-                                     mutateRequestHeaders(headers));
+                                     mutateRequestHeaders(headers, etag, lastModified));
         factory.correlations.put(replyId, this::newResponse);
         factory.counters.groupRequestsCacheable.getAsLong();
     }
 
     private Consumer<Array32FW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>> mutateRequestHeaders(
-        Array32FW<HttpHeaderFW> requestHeaders)
+        Array32FW<HttpHeaderFW> requestHeaders,
+        String etag,
+        String lastModified)
     {
         return (Array32FW.Builder<HttpHeaderFW.Builder, HttpHeaderFW> builder) ->
         {
@@ -148,8 +173,15 @@ final class HttpCacheProxyGroupRequest
             {
                 final String name = h.name().asString();
                 final String value = h.value().asString();
-                if (!AUTHORIZATION.equals(name) &&
-                    !IF_NONE_MATCH.equals(name))
+                if (METHOD.equals(name) && request.headRequest)
+                {
+                    builder.item(item -> item.name(METHOD).value(GET));
+                }
+                else if (!AUTHORIZATION.equals(name) &&
+                    !IF_NONE_MATCH.equals(name) &&
+                    !RANGE.equals(name) &&
+                    !IF_RANGE.equals(name) &&
+                    !(lastModified != null && IF_MODIFIED_SINCE.equals(name)))
                 {
                     builder.item(item -> item.name(name).value(value));
                 }
@@ -166,9 +198,58 @@ final class HttpCacheProxyGroupRequest
             {
                 builder.item(item -> item.name(IF_NONE_MATCH).value(ifNoneMatchHeader));
             }
+            else if (etag != null)
+            {
+                builder.item(item -> item.name(IF_NONE_MATCH).value(etag));
+            }
+
+            if (lastModified != null)
+            {
+                builder.item(item -> item.name(IF_MODIFIED_SINCE).value(lastModified));
+            }
+
+            if (segmentRange != null)
+            {
+                builder.item(item -> item.name(RANGE).value(segmentRange));
+            }
         };
     }
 
+    /*
+     * A single byte range is fetched from the origin as a segment when there is no complete entry to serve it from,
+     * trimmed to the gap not yet covered by the segments of a sparse entry.
+     */
+    private String segmentRange(
+        DefaultCacheEntry cacheEntry)
+    {
+        final String range = request.range;
+
+        String segmentRange = null;
+        if (range != null && (cacheEntry == null || !cacheEntry.isResponseCompleted()))
+        {
+            final IntArrayList ranges = new IntArrayList();
+            if (cacheEntry != null && cacheEntry.isSparse())
+            {
+                if (RangeHeader.parseRanges(range, cacheEntry.representationSize(), ranges) == 1)
+                {
+                    final int start = ranges.getInt(0);
+                    final int end = ranges.getInt(1);
+                    final int gapStart = cacheEntry.segmentGapStart(start, end);
+                    final int gapEnd = cacheEntry.segmentGapEnd(start, end);
+                    segmentRange = gapStart < gapEnd ?
+                        String.format("bytes=%d-%d", gapStart, gapEnd - 1) :
+                        String.format("bytes=%d-%d", start, end - 1);
+                }
+            }
+            else if (RangeHeader.parseRanges(range, Integer.MAX_VALUE, ranges) == 1)
+            {
+                segmentRange = range;
+            }
+        }
+
+        return segmentRange;
+    }
+
     private void onNotifyMessage(
         int msgTypeId,
         DirectBuffer buffer,
@@ -189,6 +270,8 @@ final class HttpCacheProxyGroupRequest
     private void onNotifySignal(
         SignalFW signal)
     {
+        factory.clock.update();
+
         final long traceId = signal.traceId();
         final int signalId = signal.signalId();
 
@@ -300,7 +383,7 @@ final class HttpCacheProxyGroupRequest
     {
         final Array32FW<HttpHeaderFW> responseHeaders = beginEx.headers();
         final boolean retry = HttpHeadersUtil.retry(responseHeaders);
-        final int requestHash = requestGroup.requestHash();
+        final long requestHash = requestGroup.requestHash();
         final String ifNoneMatch = requestGroup.ifNoneMatchHeader();
 
         MessageConsumer newStream = null;
@@ -330,15 +413,52 @@ final class HttpCacheProxyGroupRequest
                 state = HttpCacheRequestState.closedReply(state);
             }
         }
-        else if (isCacheableResponse(responseHeaders))
+        else if (revalidating &&
+                 hasStatusCode(responseHeaders, 304) &&
+                 factory.defaultCache.get(requestHash) != null)
         {
-            final Array32FW<HttpHeaderFW> requestHeaders = getRequestHeaders();
-            final short authScope = authorizationScope(request.authorization);
-            final String requestURL = getRequestURL(requestHeaders);
-            final DefaultCacheEntry cacheEntry = factory.defaultCache.supply(requestHash, authScope, requestURL);
+            final long traceId = factory.supplyTraceId.getAsLong();
+            final DefaultCacheEntry cacheEntry = factory.defaultCache.get(requestHash);
+            cacheEntry.updateRevalidatedResponseHeaders(responseHeaders);
 
-            final boolean stored = cacheEntry.storeRequestHeaders(requestHeaders);
-            assert stored;
+            cleanupRequestIfNecessary();
+            state = HttpCacheRequestState.closedReply(state);
+            requestGroup.cacheEntry(cacheEntry);
+            requestGroup.onGroupResponseBegin(factory.clock.millis(), traceId);
+            requestGroup.onGroupResponseData(traceId);
+            requestGroup.onGroupRequestEnd(request);
+            factory.counters.groupResponsesNotModified.getAsLong();
+        }
+        else if (isServerError(responseHeaders) && requestGroup.canServeStaleIfError())
+        {
+            final long traceId = factory.supplyTraceId.getAsLong();
+            cleanupRequestIfNecessary();
+            state = HttpCacheRequestState.closedReply(state);
+            requestGroup.onGroupRequestReset(traceId);
+            requestGroup.onGroupRequestEnd(request);
+        }
+        else if (segmentRange != null && isCacheableSegmentResponse(responseHeaders))
+        {
+            final DefaultCacheEntry cacheEntry = supplyCacheEntry(requestHash);
+            final String contentRange = HttpHeadersUtil.getHeader(responseHeaders, CONTENT_RANGE);
+
+            final HttpCacheProxySegmentResponse segmentResponse =
+                new HttpCacheProxySegmentResponse(factory,
+                                                  request,
+                                                  initial,
+                                                  routeId,
+                                                  replyId,
+                                                  cacheEntry,
+                                                  RangeHeader.contentRangeStart(contentRange),
+                                                  RangeHeader.contentRangeLength(contentRange),
+                                                  this::cleanupRequestIfNecessary);
+
+            newStream = segmentResponse::onResponseMessage;
+            resetHandler = segmentResponse::doResponseReset;
+        }
+        else if (isCacheableResponse(responseHeaders, factory.cacheControlParser) && !hasStatusCode(responseHeaders, 206))
+        {
+            final DefaultCacheEntry cacheEntry = supplyCacheEntry(requestHash);
 
             final HttpCacheProxyCacheableResponse cacheableResponse =
                 new HttpCacheProxyCacheableResponse(factory,
@@ -355,7 +475,12 @@ final class HttpCacheProxyGroupRequest
         }
         else
         {
-            if (requestGroup.isQueuedRequest(request))
+            if (requestGroup.isQueuedRequest(request) && request.headRequest)
+            {
+                final long traceId = factory.supplyTraceId.getAsLong();
+                request.doHeadRelayedResponse(responseHeaders, traceId);
+            }
+            else if (requestGroup.isQueuedRequest(request))
             {
                 final HttpCacheProxyRelayedResponse relayedResponse = request.newRelayedResponse(initial, routeId, replyId);
                 newStream = relayedResponse::onResponseMessage;
@@ -368,6 +493,33 @@ final class HttpCacheProxyGroupRequest
         return newStream;
     }
 
+    private DefaultCacheEntry supplyCacheEntry(
+        long requestHash)
+    {
+        final Array32FW<HttpHeaderFW> requestHeaders = getRequestHeaders();
+        final short authScope = authorizationScope(request.authorization);
+        final RequestKeyHasher requestKey =
+            factory.requestKeyHasher.hash(authScope, factory.requestHeadersIndex.wrap(requestHeaders));
+        final DefaultCacheEntry cacheEntry =
+            factory.defaultCache.supply(requestHash, requestKey.requestHash(), authScope, requestKey.requestHashWithoutQuery());
+
+        final boolean stored = cacheEntry.storeRequestHeaders(requestHeaders);
+        assert stored;
+
+        return cacheEntry;
+    }
+
+    private boolean isCacheableSegmentResponse(
+        Array32FW<HttpHeaderFW> responseHeaders)
+    {
+        final String contentRange = HttpHeadersUtil.getHeader(responseHeaders, CONTENT_RANGE);
+
+        return hasStatusCode(responseHeaders, 206) &&
+               isCacheableResponse(responseHeaders, factory.cacheControlParser) &&
+               RangeHeader.contentRangeStart(contentRange) != -1 &&
+               RangeHeader.contentRangeLength(contentRange) != -1;
+    }
+
     void doResponseReset(
         long traceId)
     {
@@ -47,7 +47,7 @@ final class HttpCacheProxyNonCacheableRequest
     final long connectReplyId;
 
     private final String requestURL;
-    private final int requestHash;
+    private final long primaryHash;
 
     HttpCacheProxyNonCacheableRequest(
         HttpCacheProxyFactory factory,
@@ -55,7 +55,7 @@ final class HttpCacheProxyNonCacheableRequest
         long routeId,
         long initialId,
         long resolveId,
-        int requestHash,
+        long primaryHash,
         String requestURL,
         boolean isMethodUnsafe)
     {
@@ -65,7 +65,7 @@ final class HttpCacheProxyNonCacheableRequest
         this.initialId = initialId;
         this.isMethodUnsafe = isMethodUnsafe;
         this.replyId = factory.supplyReplyId.applyAsLong(initialId);
-        this.requestHash = requestHash;
+        this.primaryHash = primaryHash;
         this.requestURL = requestURL;
         this.connectRouteId = resolveId;
         this.connectInitialId = factory.supplyInitialId.applyAsLong(resolveId);
@@ -79,7 +79,7 @@ final class HttpCacheProxyNonCacheableRequest
     {
         final HttpCacheProxyNonCacheableResponse nonCacheableResponse =
             new HttpCacheProxyNonCacheableResponse(factory,
-                                                   requestHash,
+                                                   primaryHash,
                                                    requestURL,
                                                    isMethodUnsafe,
                                                    connectReply,
@@ -32,7 +32,7 @@ final class HttpCacheProxyNonCacheableResponse
 {
     private final HttpCacheProxyFactory factory;
 
-    private final int requestHash;
+    private final long primaryHash;
     private final String requestURL;
 
     private final boolean isMethodUnsafe;
@@ -48,7 +48,7 @@ final class HttpCacheProxyNonCacheableResponse
 
     HttpCacheProxyNonCacheableResponse(
         HttpCacheProxyFactory factory,
-        int requestHash,
+        long primaryHash,
         String requestURL,
         boolean isMethodUnsafe,
         MessageConsumer connect,
@@ -59,7 +59,7 @@ final class HttpCacheProxyNonCacheableResponse
         long acceptReplyId)
     {
         this.factory = factory;
-        this.requestHash = requestHash;
+        this.primaryHash = primaryHash;
         this.requestURL = requestURL;
         this.isMethodUnsafe = isMethodUnsafe;
         this.connect = connect;
@@ -134,7 +134,7 @@ final class HttpCacheProxyNonCacheableResponse
 
         if (isMethodUnsafe)
         {
-            factory.defaultCache.invalidateCacheEntryIfNecessary(factory, requestHash, requestURL, traceId, headers);
+            factory.defaultCache.invalidateCacheEntryIfNecessary(factory, primaryHash, requestURL, traceId, headers);
         }
     }
 
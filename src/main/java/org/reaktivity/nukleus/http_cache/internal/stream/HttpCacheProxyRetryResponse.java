@@ -35,7 +35,7 @@ import org.reaktivity.nukleus.http_cache.internal.types.stream.HttpBeginExFW;
 final class HttpCacheProxyRetryResponse
 {
     private final HttpCacheProxyFactory factory;
-    private final int requestHash;
+    private final long requestHash;
     private final MessageConsumer initial;
     private final long routeId;
     private final long replyId;
@@ -46,7 +46,7 @@ final class HttpCacheProxyRetryResponse
 
     HttpCacheProxyRetryResponse(
         HttpCacheProxyFactory factory,
-        int requestHash,
+        long requestHash,
         MessageConsumer initial,
         long routeId,
         long initialId,
@@ -109,7 +109,7 @@ final class HttpCacheProxyRetryResponse
         final String status = getHeader(headers, STATUS);
         assert status != null;
 
-        retryAfter = HttpHeadersUtil.retryAfter(headers);
+        retryAfter = HttpHeadersUtil.retryAfter(headers, factory.clock.millis());
 
         factory.defaultCache.updateResponseHeaderIfNecessary(requestHash, headers);
 
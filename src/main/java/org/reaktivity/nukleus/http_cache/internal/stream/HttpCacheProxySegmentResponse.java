@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream;
+
+import org.agrona.DirectBuffer;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
+import org.reaktivity.nukleus.http_cache.internal.types.stream.AbortFW;
+import org.reaktivity.nukleus.http_cache.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.http_cache.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.http_cache.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.http_cache.internal.types.stream.HttpBeginExFW;
+
+/*
+ * Stores a 206 response from the origin as a segment of a sparse cache entry, then serves the queued
+ * requests for byte ranges covered by the segments stored so far.
+ */
+final class HttpCacheProxySegmentResponse
+{
+    private final HttpCacheProxyFactory factory;
+    private final HttpCacheProxyCacheableRequest request;
+    private final HttpProxyCacheableRequestGroup requestGroup;
+
+    private final MessageConsumer initial;
+    private final long routeId;
+    private final long replyId;
+    private final DefaultCacheEntry cacheEntry;
+    private final int segmentStart;
+    private final int representationLength;
+    private final Runnable cleanupRequest;
+
+    private boolean stored;
+    private int replyBudget;
+
+    HttpCacheProxySegmentResponse(
+        HttpCacheProxyFactory factory,
+        HttpCacheProxyCacheableRequest request,
+        MessageConsumer initial,
+        long routeId,
+        long replyId,
+        DefaultCacheEntry cacheEntry,
+        int segmentStart,
+        int representationLength,
+        Runnable cleanupRequest)
+    {
+        this.factory = factory;
+        this.request = request;
+        this.requestGroup = request.requestGroup;
+        this.initial = initial;
+        this.routeId = routeId;
+        this.replyId = replyId;
+        this.cacheEntry = cacheEntry;
+        this.segmentStart = segmentStart;
+        this.representationLength = representationLength;
+        this.cleanupRequest = cleanupRequest;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[routeId=%016x, replyId=%d, replyBudget=%d]",
+                getClass().getSimpleName(), routeId, replyId, replyBudget);
+    }
+
+    void doResponseReset(
+        long traceId)
+    {
+        factory.writer.doReset(initial, routeId, replyId, traceId);
+    }
+
+    void onResponseMessage(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case BeginFW.TYPE_ID:
+            final BeginFW begin = factory.beginRO.wrap(buffer, index, index + length);
+            onResponseBegin(begin);
+            break;
+        case DataFW.TYPE_ID:
+            final DataFW data = factory.dataRO.wrap(buffer, index, index + length);
+            onResponseData(data);
+            break;
+        case EndFW.TYPE_ID:
+            final EndFW end = factory.endRO.wrap(buffer, index, index + length);
+            onResponseEnd(end);
+            break;
+        case AbortFW.TYPE_ID:
+            final AbortFW abort = factory.abortRO.wrap(buffer, index, index + length);
+            onResponseAbort(abort);
+            break;
+        }
+    }
+
+    private void onResponseBegin(
+        BeginFW begin)
+    {
+        final long traceId = begin.traceId();
+        final OctetsFW extension = begin.extension();
+        final HttpBeginExFW httpBeginFW = extension.get(factory.httpBeginExRO::wrap);
+        final Array32FW<HttpHeaderFW> headers = httpBeginFW.headers();
+
+        stored = cacheEntry.storeSegmentHeaders(headers, segmentStart, representationLength);
+        requestGroup.cacheEntry(cacheEntry);
+
+        doResponseWindow(traceId, factory.initialWindowSize);
+    }
+
+    private void onResponseData(
+        DataFW data)
+    {
+        final long traceId = data.traceId();
+        final int reserved = data.reserved();
+
+        doResponseWindow(traceId, reserved);
+
+        stored = stored && cacheEntry.storeSegmentData(data);
+    }
+
+    private void onResponseEnd(
+        EndFW end)
+    {
+        final long traceId = end.traceId();
+
+        if (stored)
+        {
+            cacheEntry.completeSegment();
+        }
+
+        cleanupRequest.run();
+        requestGroup.onGroupSegmentResponseEnd(request, traceId);
+        requestGroup.onGroupRequestEnd(request);
+        factory.counters.groupResponsesSegment.getAsLong();
+    }
+
+    private void onResponseAbort(
+        AbortFW abort)
+    {
+        final long traceId = abort.traceId();
+        cleanupRequest.run();
+        requestGroup.onGroupResponseAbort(traceId);
+        requestGroup.onGroupRequestEnd(request);
+    }
+
+    private void doResponseWindow(
+        long traceId,
+        int credit)
+    {
+        replyBudget += credit;
+        if (replyBudget > 0)
+        {
+            factory.writer.doWindow(initial,
+                                    routeId,
+                                    replyId,
+                                    traceId,
+                                    0L,
+                                    credit,
+                                    0);
+        }
+    }
+}
@@ -15,20 +15,20 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.stream;
 
-import java.time.Instant;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
-import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry;
 
 public final class HttpProxyCacheableRequestGroup
 {
     private final HttpCacheProxyFactory factory;
-    private final IntConsumer cleaner;
-    private final int requestHash;
+    private final LongConsumer cleaner;
+    private final long requestHash;
     private final Deque<HttpCacheProxyCacheableRequest> queuedRequests;
     private final Set<HttpCacheProxyCachedResponse> attachedResponses;
     private final Set<HttpCacheProxyCachedResponse> detachedResponses;
@@ -37,6 +37,8 @@ public final class HttpProxyCacheableRequestGroup
     private HttpCacheProxyGroupRequest groupRequest;
     private DefaultCacheEntry cacheEntry;
     private boolean groupRequestDeleted;
+    private boolean refreshing;
+    private boolean refreshingAhead;
 
     public void onCacheEntryInvalidated(
         long traceId)
@@ -49,8 +51,8 @@ public final class HttpProxyCacheableRequestGroup
 
     HttpProxyCacheableRequestGroup(
         HttpCacheProxyFactory factory,
-        IntConsumer cleaner,
-        int requestHash)
+        LongConsumer cleaner,
+        long requestHash)
     {
         this.factory = factory;
         this.cleaner = cleaner;
@@ -60,7 +62,7 @@ public final class HttpProxyCacheableRequestGroup
         this.detachedResponses = new HashSet<>();
     }
 
-    int requestHash()
+    long requestHash()
     {
         return requestHash;
     }
@@ -97,7 +99,7 @@ public final class HttpProxyCacheableRequestGroup
         {
             doRequest(request);
         }
-        else if (!attachedResponses.isEmpty())
+        else if (!attachedResponses.isEmpty() && !cacheEntry.isSparse())
         {
             final String etag = cacheEntry.etag();
             final boolean notModified = etag != null && etag.equals(request.ifNoneMatch);
@@ -108,12 +110,33 @@ public final class HttpProxyCacheableRequestGroup
             }
             else
             {
-                request.doCachedResponse(Instant.now(), traceId);
+                request.doCachedResponse(factory.clock.millis(), traceId);
             }
             queuedRequests.remove(request);
         }
     }
 
+    void doRefreshRequest(
+        HttpCacheProxyCacheableRequest request)
+    {
+        if (groupRequest == null)
+        {
+            refreshing = true;
+            doRequest(request);
+        }
+    }
+
+    void doRefreshAheadRequest(
+        HttpCacheProxyCacheableRequest request)
+    {
+        if (groupRequest == null)
+        {
+            refreshingAhead = true;
+            factory.counters.refreshAheadRequests.getAsLong();
+            doRefreshRequest(request);
+        }
+    }
+
     void dequeue(
         HttpCacheProxyCacheableRequest request)
     {
@@ -125,7 +148,7 @@ public final class HttpProxyCacheableRequestGroup
 
     private void cleanupRequestGroupIfNecessary()
     {
-        if (!hasQueuedRequests() && !hasAttachedResponses() && !groupRequestDeleted)
+        if (!hasQueuedRequests() && !hasAttachedResponses() && !refreshing && !groupRequestDeleted)
         {
             cleaner.accept(requestHash);
             factory.counters.requestGroups.accept(-1);
@@ -151,6 +174,7 @@ public final class HttpProxyCacheableRequestGroup
         long traceId)
     {
         if (groupRequest != null &&
+            !refreshing &&
             !hasQueuedRequests() &&
             !hasAttachedResponses())
         {
@@ -159,16 +183,28 @@ public final class HttpProxyCacheableRequestGroup
         }
     }
 
+    boolean canServeStaleIfError()
+    {
+        boolean canServeStaleIfError = false;
+        for (HttpCacheProxyCacheableRequest queuedRequest : queuedRequests)
+        {
+            canServeStaleIfError |= queuedRequest.canServeStaleIfError();
+        }
+        return canServeStaleIfError;
+    }
+
     void onGroupRequestReset(
         long traceId)
     {
-        queuedRequests.forEach(r -> r.do503RetryResponse(traceId));
+        queuedRequests.forEach(r -> doStaleIfErrorOr503RetryResponse(r, traceId));
         queuedRequests.clear();
+        refreshing = false;
+        onRefreshAheadFailed();
         cleanupRequestGroupIfNecessary();
     }
 
     void onGroupResponseBegin(
-        Instant now,
+        long now,
         long traceId)
     {
         final String etag = cacheEntry.etag();
@@ -196,28 +232,92 @@ public final class HttpProxyCacheableRequestGroup
         cleanupRequestGroupIfNecessary();
     }
 
+    /*
+     * Responses served from a retained or restored response carry on, the others abort.
+     */
     void onGroupResponseAbort(
         long traceId)
     {
-        queuedRequests.forEach(r -> r.do503RetryResponse(traceId));
-        queuedRequests.clear();
-
-        attachedResponses.forEach(r -> r.doResponseAbort(traceId));
-        attachedResponses.clear();
+        attachedResponses.removeIf(detachedResponses::contains);
         detachedResponses.clear();
+        attachedResponses.forEach(r -> r.onGroupResponseAbort(traceId));
+
+        queuedRequests.forEach(r -> doStaleIfErrorOr503RetryResponse(r, traceId));
+        queuedRequests.clear();
+        onRefreshAheadFailed();
 
         cleanupRequestGroupIfNecessary();
     }
 
+    /*
+     * Serves the queued requests covered by the segments stored so far, answering the group request itself
+     * with 503 when the origin did not cover it, rather than requesting the same range again.
+     */
+    void onGroupSegmentResponseEnd(
+        HttpCacheProxyCacheableRequest request,
+        long traceId)
+    {
+        for (Iterator<HttpCacheProxyCacheableRequest> i = queuedRequests.iterator(); i.hasNext();)
+        {
+            final HttpCacheProxyCacheableRequest queuedRequest = i.next();
+            if (queuedRequest.canServeSegmentResponse())
+            {
+                queuedRequest.doSegmentResponse(traceId);
+                i.remove();
+            }
+            else if (queuedRequest == request)
+            {
+                queuedRequest.do503RetryResponse(traceId);
+                i.remove();
+            }
+        }
+        onGroupResponseData(traceId);
+    }
+
     void onGroupRequestEnd(
         HttpCacheProxyCacheableRequest request)
     {
         assert groupRequest.request() == request;
         groupRequest = null;
 
+        if (refreshingAhead)
+        {
+            refreshingAhead = false;
+            factory.counters.refreshAheadResponses.getAsLong();
+        }
+
+        if (refreshing)
+        {
+            refreshing = false;
+            cleanupRequestGroupIfNecessary();
+        }
+
         flushNextRequest();
     }
 
+    private void onRefreshAheadFailed()
+    {
+        if (refreshingAhead)
+        {
+            refreshingAhead = false;
+            factory.counters.refreshAheadFailures.getAsLong();
+        }
+    }
+
+    private void doStaleIfErrorOr503RetryResponse(
+        HttpCacheProxyCacheableRequest request,
+        long traceId)
+    {
+        if (request.canServeStaleIfError())
+        {
+            request.doStaleIfErrorResponse(traceId);
+        }
+        else
+        {
+            request.do503RetryResponse(traceId);
+        }
+    }
+
     private void doRequest(
         HttpCacheProxyCacheableRequest request)
     {
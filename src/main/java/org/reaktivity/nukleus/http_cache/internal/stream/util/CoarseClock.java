@@ -0,0 +1,85 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpDate.IMF_FIXDATE_LENGTH;
+
+import java.util.function.LongSupplier;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/*
+ * Millisecond clock sampled once per duty cycle, so that freshness checks within the same cycle agree
+ * and do not each read the system clock. The Date header value is formatted at most once per second.
+ */
+public final class CoarseClock
+{
+    private final LongSupplier supplyTime;
+    private final MutableDirectBuffer dateBuffer;
+
+    private long millis;
+    private long dateSecond = Long.MIN_VALUE;
+    private String date;
+
+    public CoarseClock(
+        LongSupplier supplyTime)
+    {
+        this.supplyTime = supplyTime;
+        this.dateBuffer = new UnsafeBuffer(new byte[IMF_FIXDATE_LENGTH]);
+        this.millis = supplyTime.getAsLong();
+    }
+
+    public long update()
+    {
+        millis = supplyTime.getAsLong();
+        return millis;
+    }
+
+    public long millis()
+    {
+        return millis;
+    }
+
+    /*
+     * IMF-fixdate of the current second, as bytes.
+     */
+    public DirectBuffer dateBytes()
+    {
+        final long second = Math.floorDiv(millis, 1000L);
+        if (second != dateSecond)
+        {
+            HttpDate.format(millis, dateBuffer, 0);
+            dateSecond = second;
+            date = null;
+        }
+        return dateBuffer;
+    }
+
+    /*
+     * IMF-fixdate of the current second, as a String for header maps.
+     */
+    public String date()
+    {
+        final DirectBuffer dateBytes = dateBytes();
+        if (date == null)
+        {
+            date = dateBytes.getStringWithoutLengthAscii(0, IMF_FIXDATE_LENGTH);
+        }
+        return date;
+    }
+}
@@ -19,16 +19,15 @@ import java.nio.ByteBuffer;
 import java.util.function.LongSupplier;
 
 import org.agrona.MutableDirectBuffer;
-import org.reaktivity.nukleus.buffer.BufferPool;
 
-public final class CountingBufferPool implements BufferPool
+public final class CountingBufferPool implements SizedBufferPool
 {
-    private final BufferPool bufferPool;
+    private final SizedBufferPool bufferPool;
     private final LongSupplier acquires;
     private final LongSupplier releases;
 
     public CountingBufferPool(
-            BufferPool bufferPool,
+            SizedBufferPool bufferPool,
             LongSupplier acquires,
             LongSupplier releases)
     {
@@ -43,6 +42,13 @@ public final class CountingBufferPool implements BufferPool
         return bufferPool.slotCapacity();
     }
 
+    @Override
+    public int slotCapacity(
+            int slot)
+    {
+        return bufferPool.slotCapacity(slot);
+    }
+
     @Override
     public int acquire(long streamId)
     {
@@ -56,6 +62,21 @@ public final class CountingBufferPool implements BufferPool
         return slot;
     }
 
+    @Override
+    public int acquire(
+            long streamId,
+            int minimumCapacity)
+    {
+        final int slot = bufferPool.acquire(streamId, minimumCapacity);
+
+        if (slot != NO_SLOT)
+        {
+            acquires.getAsLong();
+        }
+
+        return slot;
+    }
+
     @Override
     public MutableDirectBuffer buffer(
             int slot)
@@ -90,7 +111,7 @@ public final class CountingBufferPool implements BufferPool
     }
 
     @Override
-    public BufferPool duplicate()
+    public CountingBufferPool duplicate()
     {
         return new CountingBufferPool(bufferPool.duplicate(), acquires, releases);
     }
@@ -100,4 +121,24 @@ public final class CountingBufferPool implements BufferPool
     {
         return bufferPool.acquiredSlots();
     }
+
+    @Override
+    public int totalSlots()
+    {
+        return bufferPool.totalSlots();
+    }
+
+    @Override
+    public int totalSlots(
+        int minimumCapacity)
+    {
+        return bufferPool.totalSlots(minimumCapacity);
+    }
+
+    @Override
+    public int acquiredSlots(
+        int minimumCapacity)
+    {
+        return bufferPool.acquiredSlots(minimumCapacity);
+    }
 }
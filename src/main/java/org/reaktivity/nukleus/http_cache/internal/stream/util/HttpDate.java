@@ -0,0 +1,222 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.agrona.BitUtil.SIZE_OF_SHORT;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.http_cache.internal.types.String16FW;
+
+/*
+ * IMF-fixdate (RFC 7231 section 7.1.1.1) codec over header bytes, e.g. "Sun, 06 Nov 1994 08:49:37 GMT".
+ * Stateless and allocation free, so it can be shared across workers, unlike SimpleDateFormat.
+ */
+public final class HttpDate
+{
+    public static final long INVALID_DATE = Long.MIN_VALUE;
+    public static final int IMF_FIXDATE_LENGTH = 29;
+
+    private static final byte[] DAY_NAMES = "ThuFriSatSunMonTueWed".getBytes(US_ASCII);
+    private static final byte[] MONTH_NAMES = "JanFebMarAprMayJunJulAugSepOctNovDec".getBytes(US_ASCII);
+    private static final byte[] GMT = "GMT".getBytes(US_ASCII);
+    private static final byte[] UTC = "UTC".getBytes(US_ASCII);
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final int SECONDS_PER_DAY = 86400;
+
+    public static long parse(
+        String16FW value)
+    {
+        return value != null ? parse(value.buffer(), value.offset() + SIZE_OF_SHORT, value.limit()) : INVALID_DATE;
+    }
+
+    /*
+     * Epoch milliseconds of the IMF-fixdate, or INVALID_DATE when the value is not an IMF-fixdate.
+     */
+    public static long parse(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        while (offset < limit && buffer.getByte(offset) == ' ')
+        {
+            offset++;
+        }
+        while (limit > offset && buffer.getByte(limit - 1) == ' ')
+        {
+            limit--;
+        }
+
+        long date = INVALID_DATE;
+        if (limit - offset == IMF_FIXDATE_LENGTH &&
+            buffer.getByte(offset + 3) == ',' &&
+            buffer.getByte(offset + 4) == ' ' &&
+            buffer.getByte(offset + 7) == ' ' &&
+            buffer.getByte(offset + 11) == ' ' &&
+            buffer.getByte(offset + 16) == ' ' &&
+            buffer.getByte(offset + 19) == ':' &&
+            buffer.getByte(offset + 22) == ':' &&
+            buffer.getByte(offset + 25) == ' ' &&
+            (regionMatches(buffer, offset + 26, GMT, 0) || regionMatches(buffer, offset + 26, UTC, 0)))
+        {
+            final int day = digits(buffer, offset + 5, 2);
+            final int month = month(buffer, offset + 8);
+            final int year = digits(buffer, offset + 12, 4);
+            final int hour = digits(buffer, offset + 17, 2);
+            final int minute = digits(buffer, offset + 20, 2);
+            final int second = digits(buffer, offset + 23, 2);
+
+            if (day >= 1 && day <= 31 && month != -1 && year != -1 &&
+                hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 61)
+            {
+                final long seconds = epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+                date = seconds * MILLIS_PER_SECOND;
+            }
+        }
+        return date;
+    }
+
+    public static long parse(
+        String value)
+    {
+        long date = INVALID_DATE;
+        if (value != null)
+        {
+            final byte[] bytes = value.getBytes(US_ASCII);
+            date = parse(new UnsafeBuffer(bytes), 0, bytes.length);
+        }
+        return date;
+    }
+
+    /*
+     * Writes the IMF-fixdate for the epoch milliseconds, truncated to the second, returning the length written.
+     */
+    public static int format(
+        long millis,
+        MutableDirectBuffer buffer,
+        int offset)
+    {
+        final long seconds = Math.floorDiv(millis, MILLIS_PER_SECOND);
+        final long epochDay = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        final int secondOfDay = (int) Math.floorMod(seconds, SECONDS_PER_DAY);
+
+        // civil from days, see http://howardhinnant.github.io/date_algorithms.html
+        final long z = epochDay + 719468;
+        final long era = Math.floorDiv(z, 146097);
+        final int doe = (int) (z - era * 146097);
+        final int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final int mp = (5 * doy + 2) / 153;
+        final int day = doy - (153 * mp + 2) / 5 + 1;
+        final int month = mp < 10 ? mp + 3 : mp - 9;
+        final int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        final int dayOfWeek = (int) Math.floorMod(epochDay, 7);
+        buffer.putBytes(offset, DAY_NAMES, dayOfWeek * 3, 3);
+        buffer.putByte(offset + 3, (byte) ',');
+        buffer.putByte(offset + 4, (byte) ' ');
+        putDigits(buffer, offset + 5, day, 2);
+        buffer.putByte(offset + 7, (byte) ' ');
+        buffer.putBytes(offset + 8, MONTH_NAMES, (month - 1) * 3, 3);
+        buffer.putByte(offset + 11, (byte) ' ');
+        putDigits(buffer, offset + 12, year, 4);
+        buffer.putByte(offset + 16, (byte) ' ');
+        putDigits(buffer, offset + 17, secondOfDay / 3600, 2);
+        buffer.putByte(offset + 19, (byte) ':');
+        putDigits(buffer, offset + 20, secondOfDay / 60 % 60, 2);
+        buffer.putByte(offset + 22, (byte) ':');
+        putDigits(buffer, offset + 23, secondOfDay % 60, 2);
+        buffer.putByte(offset + 25, (byte) ' ');
+        buffer.putBytes(offset + 26, GMT);
+
+        return IMF_FIXDATE_LENGTH;
+    }
+
+    // days from civil, see http://howardhinnant.github.io/date_algorithms.html
+    private static long epochDay(
+        int year,
+        int month,
+        int day)
+    {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = Math.floorDiv(y, 400);
+        final int yoe = y - era * 400;
+        final int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    private static int month(
+        DirectBuffer buffer,
+        int offset)
+    {
+        int month = -1;
+        for (int candidate = 0; candidate < 12 && month == -1; candidate++)
+        {
+            if (regionMatches(buffer, offset, MONTH_NAMES, candidate * 3))
+            {
+                month = candidate + 1;
+            }
+        }
+        return month;
+    }
+
+    private static boolean regionMatches(
+        DirectBuffer buffer,
+        int offset,
+        byte[] name,
+        int nameOffset)
+    {
+        return buffer.getByte(offset) == name[nameOffset] &&
+               buffer.getByte(offset + 1) == name[nameOffset + 1] &&
+               buffer.getByte(offset + 2) == name[nameOffset + 2];
+    }
+
+    private static int digits(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        int value = 0;
+        for (int index = offset; index < offset + length && value != -1; index++)
+        {
+            final int digit = buffer.getByte(index) - '0';
+            value = digit >= 0 && digit <= 9 ? value * 10 + digit : -1;
+        }
+        return value;
+    }
+
+    private static void putDigits(
+        MutableDirectBuffer buffer,
+        int offset,
+        int value,
+        int length)
+    {
+        for (int index = offset + length - 1; index >= offset; index--)
+        {
+            buffer.putByte(index, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+    }
+
+    private HttpDate()
+    {
+        // utility
+    }
+}
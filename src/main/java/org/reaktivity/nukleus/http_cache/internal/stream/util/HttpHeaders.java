@@ -28,6 +28,10 @@ public final class HttpHeaders
     public static final String AUTHORITY = ":authority";
     public static final String PATH = ":path";
     public static final String CONTENT_LENGTH = "content-length";
+    public static final String CONTENT_TYPE = "content-type";
+    public static final String CONTENT_RANGE = "content-range";
+    public static final String RANGE = "range";
+    public static final String IF_RANGE = "if-range";
     public static final String TRANSFER_ENCODING = "transfer-encoding";
     public static final String METHOD = ":method";
     public static final String WARNING = "warning";
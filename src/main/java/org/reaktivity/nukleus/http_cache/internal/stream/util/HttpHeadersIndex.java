@@ -0,0 +1,286 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static org.agrona.BitUtil.SIZE_OF_BYTE;
+import static org.agrona.BitUtil.SIZE_OF_SHORT;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.regionMatches;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.String16FW;
+import org.reaktivity.nukleus.http_cache.internal.types.String8FW;
+
+/*
+ * Single pass index of the well-known headers, recording the value offsets of the first occurrence
+ * of each so that later decisions read bytes directly instead of scanning the headers again.
+ * The index is only valid while the wrapped headers are.
+ */
+public final class HttpHeadersIndex
+{
+    public static final int STATUS = 0;
+    public static final int METHOD = 1;
+    public static final int SCHEME = 2;
+    public static final int AUTHORITY = 3;
+    public static final int PATH = 4;
+    public static final int CACHE_CONTROL = 5;
+    public static final int IF_MATCH = 6;
+    public static final int IF_NONE_MATCH = 7;
+    public static final int IF_MODIFIED_SINCE = 8;
+    public static final int IF_UNMODIFIED_SINCE = 9;
+    public static final int IF_RANGE = 10;
+    public static final int RANGE = 11;
+    public static final int PREFER = 12;
+    public static final int AUTHORIZATION = 13;
+    public static final int TRANSFER_ENCODING = 14;
+    public static final int CONTENT_LENGTH = 15;
+    public static final int CONTENT_TYPE = 16;
+    public static final int SURROGATE_CONTROL = 17;
+    public static final int EMULATED_PROTOCOL_STACK = 18;
+    public static final int VARY = 19;
+
+    private static final String8FW[] TOKENS =
+    {
+        new String8FW(HttpHeaders.STATUS),
+        new String8FW(HttpHeaders.METHOD),
+        new String8FW(HttpHeaders.SCHEME),
+        new String8FW(HttpHeaders.AUTHORITY),
+        new String8FW(HttpHeaders.PATH),
+        new String8FW(HttpHeaders.CACHE_CONTROL),
+        new String8FW(HttpHeaders.IF_MATCH),
+        new String8FW(HttpHeaders.IF_NONE_MATCH),
+        new String8FW(HttpHeaders.IF_MODIFIED_SINCE),
+        new String8FW(HttpHeaders.IF_UNMODIFIED_SINCE),
+        new String8FW(HttpHeaders.IF_RANGE),
+        new String8FW(HttpHeaders.RANGE),
+        new String8FW(HttpHeaders.PREFER),
+        new String8FW(HttpHeaders.AUTHORIZATION),
+        new String8FW(HttpHeaders.TRANSFER_ENCODING),
+        new String8FW(HttpHeaders.CONTENT_LENGTH),
+        new String8FW(HttpHeaders.CONTENT_TYPE),
+        new String8FW(HttpHeaders.SURROGATE_CONTROL),
+        new String8FW(HttpHeaders.EMULATED_PROTOCOL_STACK),
+        new String8FW(HttpHeaders.VARY)
+    };
+
+    private static final int TOKEN_COUNT = TOKENS.length;
+    private static final int NO_TOKEN = -1;
+    private static final int NO_VALUE = -1;
+
+    // open addressing by name length and first and last bytes, entries hold token + 1
+    private static final int TOKEN_TABLE_MASK = 0x3f;
+    private static final byte[] TOKEN_TABLE = new byte[TOKEN_TABLE_MASK + 1];
+
+    static
+    {
+        for (int token = 0; token < TOKEN_COUNT; token++)
+        {
+            int index = tokenHash(TOKENS[token]);
+            while (TOKEN_TABLE[index] != 0)
+            {
+                index = (index + 1) & TOKEN_TABLE_MASK;
+            }
+            TOKEN_TABLE[index] = (byte) (token + 1);
+        }
+    }
+
+    private final int[] valueOffsets = new int[TOKEN_COUNT];
+    private final int[] valueLimits = new int[TOKEN_COUNT];
+    private final Consumer<HttpHeaderFW> indexHeader = this::indexHeader;
+    private final UnsafeBuffer valueRO = new UnsafeBuffer(0L, 0);
+
+    private Array32FW<HttpHeaderFW> headers;
+
+    public HttpHeadersIndex wrap(
+        Array32FW<HttpHeaderFW> headers)
+    {
+        this.headers = headers;
+        Arrays.fill(valueOffsets, NO_VALUE);
+        headers.forEach(indexHeader);
+        return this;
+    }
+
+    public Array32FW<HttpHeaderFW> headers()
+    {
+        return headers;
+    }
+
+    public boolean has(
+        int token)
+    {
+        return valueOffsets[token] != NO_VALUE;
+    }
+
+    /*
+     * Value of the indexed header, as a slice that is reused by the next lookup.
+     */
+    public DirectBuffer value(
+        int token)
+    {
+        DirectBuffer value = null;
+        final int offset = valueOffsets[token];
+        if (offset != NO_VALUE)
+        {
+            valueRO.wrap(headers.buffer(), offset, valueLimits[token] - offset);
+            value = valueRO;
+        }
+        return value;
+    }
+
+    public String valueAsString(
+        int token)
+    {
+        final int offset = valueOffsets[token];
+        return offset != NO_VALUE ? headers.buffer().getStringWithoutLengthUtf8(offset, valueLimits[token] - offset) : null;
+    }
+
+    /*
+     * Epoch milliseconds of the indexed IMF-fixdate value, parsed over its bytes, or INVALID_DATE.
+     */
+    public long dateValue(
+        int token)
+    {
+        final int offset = valueOffsets[token];
+        return offset != NO_VALUE ? HttpDate.parse(headers.buffer(), offset, valueLimits[token]) : HttpDate.INVALID_DATE;
+    }
+
+    public boolean equals(
+        int token,
+        byte[] value)
+    {
+        final int offset = valueOffsets[token];
+        return offset != NO_VALUE &&
+               valueLimits[token] - offset == value.length &&
+               regionMatches(headers.buffer(), offset, value, false);
+    }
+
+    public boolean equalsIgnoreCase(
+        int token,
+        byte[] value)
+    {
+        final int offset = valueOffsets[token];
+        return offset != NO_VALUE &&
+               valueLimits[token] - offset == value.length &&
+               regionMatches(headers.buffer(), offset, value, true);
+    }
+
+    public boolean contains(
+        int token,
+        byte[] value)
+    {
+        final int offset = valueOffsets[token];
+        return offset != NO_VALUE && HttpHeadersView.contains(headers.buffer(), offset, valueLimits[token], value);
+    }
+
+    public boolean startsWithIgnoreCase(
+        int token,
+        byte[] prefix)
+    {
+        final int offset = valueOffsets[token];
+        return offset != NO_VALUE && HttpHeadersView.startsWithIgnoreCase(headers.buffer(), offset, valueLimits[token], prefix);
+    }
+
+    /*
+     * Whether the comma separated header value has an element equal to the given one, ignoring
+     * surrounding whitespace, e.g. an etag in If-None-Match.
+     */
+    public boolean containsElement(
+        int token,
+        String element)
+    {
+        final DirectBuffer buffer = headers.buffer();
+        final int limit = valueLimits[token];
+        int offset = valueOffsets[token];
+
+        boolean contains = false;
+        while (offset != NO_VALUE && offset <= limit && !contains)
+        {
+            int end = offset;
+            while (end < limit && buffer.getByte(end) != ',')
+            {
+                end++;
+            }
+
+            int start = offset;
+            while (start < end && isWhitespace(buffer.getByte(start)))
+            {
+                start++;
+            }
+            int last = end;
+            while (last > start && isWhitespace(buffer.getByte(last - 1)))
+            {
+                last--;
+            }
+
+            contains = last - start == element.length();
+            for (int index = 0; index < element.length() && contains; index++)
+            {
+                contains = buffer.getByte(start + index) == element.charAt(index);
+            }
+            offset = end + 1;
+        }
+        return contains;
+    }
+
+    private void indexHeader(
+        HttpHeaderFW header)
+    {
+        final int token = token(header.name());
+        if (token != NO_TOKEN && valueOffsets[token] == NO_VALUE)
+        {
+            final String16FW value = header.value();
+            valueOffsets[token] = value.offset() + SIZE_OF_SHORT;
+            valueLimits[token] = value.limit();
+        }
+    }
+
+    private static int token(
+        String8FW name)
+    {
+        int token = NO_TOKEN;
+        int index = tokenHash(name);
+        for (int entry = TOKEN_TABLE[index]; entry != 0 && token == NO_TOKEN; entry = TOKEN_TABLE[index])
+        {
+            if (TOKENS[entry - 1].equals(name))
+            {
+                token = entry - 1;
+            }
+            index = (index + 1) & TOKEN_TABLE_MASK;
+        }
+        return token;
+    }
+
+    private static int tokenHash(
+        String8FW name)
+    {
+        final DirectBuffer buffer = name.buffer();
+        final int offset = name.offset() + SIZE_OF_BYTE;
+        final int length = name.sizeof() - SIZE_OF_BYTE;
+        final int hash = length > 0 ? length * 31 + buffer.getByte(offset) * 7 + buffer.getByte(offset + length - 1) : 0;
+        return hash & TOKEN_TABLE_MASK;
+    }
+
+    private static boolean isWhitespace(
+        byte b)
+    {
+        return b == ' ' || b == '\t';
+    }
+}
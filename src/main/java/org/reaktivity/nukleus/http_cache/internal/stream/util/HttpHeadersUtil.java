@@ -15,55 +15,22 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.stream.util;
 
+import static org.agrona.BitUtil.SIZE_OF_SHORT;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpDate.INVALID_DATE;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.AUTHORITY;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.EMULATED_PROTOCOL_STACK;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_NONE_MATCH;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.RETRY_AFTER;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.STATUS;
-
-import java.text.SimpleDateFormat;
-import java.time.Instant;
-import java.util.Date;
-import java.util.function.Predicate;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_RETRY_AFTER;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_STATUS;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.equalsIgnoreCase;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.isStatus;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.isStatusClass;
 
+import org.agrona.DirectBuffer;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.String16FW;
 
 public final class HttpHeadersUtil
 {
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
-
-    public static final Predicate<? super HttpHeaderFW> HAS_CACHE_CONTROL = h ->
-    {
-
-        String name = h.name().asString();
-        return "cache-control".equalsIgnoreCase(name);
-    };
-
-    public static final Predicate<? super HttpHeaderFW> HAS_IF_NONE_MATCH = h ->
-    {
-        String name = h.name().asString();
-        return IF_NONE_MATCH.equalsIgnoreCase(name);
-    };
-
-    public static final Predicate<? super HttpHeaderFW> HAS_AUTHORIZATION = h ->
-    {
-        String name = h.name().asString();
-        return AUTHORITY.equalsIgnoreCase(name);
-    };
-
-    public static final Predicate<? super HttpHeaderFW> HAS_EMULATED_PROTOCOL_STACK = h ->
-    {
-        String name = h.name().asString();
-        return EMULATED_PROTOCOL_STACK.equalsIgnoreCase(name);
-    };
-
-    public static final Predicate<? super HttpHeaderFW> HAS_RETRY_AFTER = h ->
-    {
-        String name = h.name().asString();
-        return RETRY_AFTER.equalsIgnoreCase(name);
-    };
-
     public static String getRequestURL(Array32FW<HttpHeaderFW> headers)
     {
         // TODO, less garbage collection...
@@ -95,13 +62,17 @@ public final class HttpHeadersUtil
         Array32FW<HttpHeaderFW> cachedRequestHeaders,
         String headerName)
     {
-        // TODO remove GC when have streaming API: https://github.com/reaktivity/nukleus-maven-plugin/issues/16
         final StringBuilder header = new StringBuilder();
         cachedRequestHeaders.forEach(h ->
         {
-            if (headerName.equalsIgnoreCase(h.name().asString()))
+            if (equalsIgnoreCase(h.name(), headerName))
             {
-                header.append(h.value().asString());
+                final String value = h.value().asString();
+                if (header.length() != 0 && !value.isEmpty())
+                {
+                    header.append(", ");
+                }
+                header.append(value);
             }
         });
 
@@ -121,8 +92,15 @@ public final class HttpHeadersUtil
         Array32FW<HttpHeaderFW> responseHeaders,
         int statusCode)
     {
-        return responseHeaders.anyMatch(h ->
-                STATUS.equals(h.name().asString()) && (Integer.toString(statusCode)).equals(h.value().asString()));
+        final HttpHeaderFW status = responseHeaders.matchFirst(HAS_STATUS);
+        return status != null && isStatus(status.value(), statusCode);
+    }
+
+    public static boolean isServerError(
+        Array32FW<HttpHeaderFW> responseHeaders)
+    {
+        final HttpHeaderFW status = responseHeaders.matchFirst(HAS_STATUS);
+        return status != null && isStatusClass(status.value(), '5');
     }
 
     public static boolean retry(
@@ -139,39 +117,39 @@ public final class HttpHeadersUtil
      * @return wait time in seconds from now for both formats
      */
     public static long retryAfter(
-        Array32FW<HttpHeaderFW> responseHeaders)
+        Array32FW<HttpHeaderFW> responseHeaders,
+        long now)
     {
-        HttpHeaderFW header = responseHeaders.matchFirst(HAS_RETRY_AFTER);
+        final HttpHeaderFW header = responseHeaders.matchFirst(HAS_RETRY_AFTER);
 
-        if (header == null)
+        long retryAfter = 0L;
+        if (header != null)
         {
-            return 0L;
-        }
-
-        String retryAfter = header.value().asString();
-        try
-        {
-            if (retryAfter != null && !retryAfter.isEmpty())
+            final String16FW value = header.value();
+            final DirectBuffer buffer = value.buffer();
+            final int offset = value.offset() + SIZE_OF_SHORT;
+            final int limit = value.limit();
+            if (offset < limit && Character.isDigit(buffer.getByte(offset)))
             {
-                if (Character.isDigit(retryAfter.charAt(0)))
+                for (int index = offset; index < limit && retryAfter != -1L; index++)
                 {
-                    return Integer.valueOf(retryAfter);
+                    final int digit = buffer.getByte(index) - '0';
+                    retryAfter = digit >= 0 && digit <= 9 ? retryAfter * 10 + digit : -1L;
+                    retryAfter = retryAfter <= Integer.MAX_VALUE ? retryAfter : -1L;
                 }
-                else
+                retryAfter = Math.max(retryAfter, 0L);
+            }
+            else
+            {
+                final long date = HttpDate.parse(value);
+                if (date != INVALID_DATE)
                 {
-                    final Date date = DATE_FORMAT.parse(retryAfter);
-                    final long epochSecond = date.toInstant().getEpochSecond();
-                    final long nowSecond = Instant.now().getEpochSecond();
-                    final long waitSeconds = epochSecond - nowSecond;
-                    return Math.max(waitSeconds, 0);
+                    final long waitSeconds = Math.floorDiv(date, 1000L) - Math.floorDiv(now, 1000L);
+                    retryAfter = Math.max(waitSeconds, 0L);
                 }
             }
         }
-        catch (Exception e)
-        {
-            // ignore
-        }
-        return 0L;
+        return retryAfter;
     }
 
     private HttpHeadersUtil()
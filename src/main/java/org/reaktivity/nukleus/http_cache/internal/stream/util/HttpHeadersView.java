@@ -0,0 +1,214 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.agrona.BitUtil.SIZE_OF_BYTE;
+import static org.agrona.BitUtil.SIZE_OF_SHORT;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.ONLY_IF_CACHED;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.AUTHORIZATION;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CACHE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.DATE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.EMULATED_PROTOCOL_STACK;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_NONE_MATCH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.LAST_MODIFIED;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.METHOD;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.PREFER;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.PREFERENCE_APPLIED;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.RETRY_AFTER;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.STATUS;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.SURROGATE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.TRANSFER_ENCODING;
+
+import java.util.function.Predicate;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.String16FW;
+import org.reaktivity.nukleus.http_cache.internal.types.String8FW;
+
+/*
+ * Header lookups over the raw flyweight bytes, comparing names against pre-encoded constants
+ * so that matching a header allocates no Strings.
+ */
+public final class HttpHeadersView
+{
+    public static final String8FW STATUS_NAME = new String8FW(STATUS);
+    public static final String8FW METHOD_NAME = new String8FW(METHOD);
+    public static final String8FW AUTHORIZATION_NAME = new String8FW(AUTHORIZATION);
+    public static final String8FW CACHE_CONTROL_NAME = new String8FW(CACHE_CONTROL);
+    public static final String8FW SURROGATE_CONTROL_NAME = new String8FW(SURROGATE_CONTROL);
+    public static final String8FW IF_NONE_MATCH_NAME = new String8FW(IF_NONE_MATCH);
+    public static final String8FW PREFER_NAME = new String8FW(PREFER);
+    public static final String8FW PREFERENCE_APPLIED_NAME = new String8FW(PREFERENCE_APPLIED);
+    public static final String8FW RETRY_AFTER_NAME = new String8FW(RETRY_AFTER);
+    public static final String8FW EMULATED_PROTOCOL_STACK_NAME = new String8FW(EMULATED_PROTOCOL_STACK);
+    public static final String8FW TRANSFER_ENCODING_NAME = new String8FW(TRANSFER_ENCODING);
+    public static final String8FW DATE_NAME = new String8FW(DATE);
+    public static final String8FW LAST_MODIFIED_NAME = new String8FW(LAST_MODIFIED);
+
+    private static final byte[] ONLY_IF_CACHED_BYTES = ONLY_IF_CACHED.getBytes(US_ASCII);
+
+    public static final Predicate<? super HttpHeaderFW> HAS_STATUS = h -> STATUS_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_AUTHORIZATION = h -> AUTHORIZATION_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_CACHE_CONTROL = h -> CACHE_CONTROL_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_SURROGATE_CONTROL = h -> SURROGATE_CONTROL_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_IF_NONE_MATCH = h -> IF_NONE_MATCH_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_PREFER = h -> PREFER_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_PREFERENCE_APPLIED = h -> PREFERENCE_APPLIED_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_RETRY_AFTER = h -> RETRY_AFTER_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_TRANSFER_ENCODING = h -> TRANSFER_ENCODING_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_DATE = h -> DATE_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_LAST_MODIFIED = h -> LAST_MODIFIED_NAME.equals(h.name());
+    public static final Predicate<? super HttpHeaderFW> HAS_EMULATED_PROTOCOL_STACK =
+        h -> EMULATED_PROTOCOL_STACK_NAME.equals(h.name());
+
+    public static final Predicate<? super HttpHeaderFW> IS_ONLY_IF_CACHED =
+        h -> CACHE_CONTROL_NAME.equals(h.name()) && contains(h.value(), ONLY_IF_CACHED_BYTES);
+
+    private String8FW name;
+
+    private final Predicate<HttpHeaderFW> hasName = h -> name.equals(h.name());
+    private final UnsafeBuffer valueRO = new UnsafeBuffer(0L, 0);
+
+    /*
+     * Value of the first header with the given name, as a slice that is reused by the next lookup.
+     */
+    public DirectBuffer value(
+        Array32FW<HttpHeaderFW> headers,
+        String8FW name)
+    {
+        this.name = name;
+        final HttpHeaderFW header = headers.matchFirst(hasName);
+        this.name = null;
+
+        DirectBuffer value = null;
+        if (header != null)
+        {
+            final String16FW headerValue = header.value();
+            valueRO.wrap(headerValue.buffer(), headerValue.offset() + SIZE_OF_SHORT, headerValue.sizeof() - SIZE_OF_SHORT);
+            value = valueRO;
+        }
+        return value;
+    }
+
+    public static boolean contains(
+        String16FW value,
+        byte[] token)
+    {
+        return contains(value.buffer(), value.offset() + SIZE_OF_SHORT, value.limit(), token);
+    }
+
+    public static boolean startsWithIgnoreCase(
+        String16FW value,
+        byte[] prefix)
+    {
+        return startsWithIgnoreCase(value.buffer(), value.offset() + SIZE_OF_SHORT, value.limit(), prefix);
+    }
+
+    public static boolean equalsIgnoreCase(
+        DirectBuffer value,
+        byte[] other)
+    {
+        return value != null && value.capacity() == other.length && regionMatches(value, 0, other, true);
+    }
+
+    public static boolean equalsIgnoreCase(
+        String8FW name,
+        String other)
+    {
+        final DirectBuffer buffer = name.buffer();
+        final int offset = name.offset() + SIZE_OF_BYTE;
+        final int length = name.sizeof() - SIZE_OF_BYTE;
+
+        boolean equals = length == other.length();
+        for (int index = 0; index < length && equals; index++)
+        {
+            equals = toLowerCase(buffer.getByte(offset + index)) == toLowerCase(other.charAt(index));
+        }
+        return equals;
+    }
+
+    /*
+     * Compares a three digit status code without formatting it, e.g. 503 against "503".
+     */
+    public static boolean isStatus(
+        String16FW value,
+        int statusCode)
+    {
+        final DirectBuffer buffer = value.buffer();
+        final int offset = value.offset() + SIZE_OF_SHORT;
+        return value.sizeof() - SIZE_OF_SHORT == 3 &&
+               buffer.getByte(offset) == '0' + statusCode / 100 &&
+               buffer.getByte(offset + 1) == '0' + statusCode / 10 % 10 &&
+               buffer.getByte(offset + 2) == '0' + statusCode % 10;
+    }
+
+    public static boolean isStatusClass(
+        String16FW value,
+        char statusClass)
+    {
+        return value.sizeof() - SIZE_OF_SHORT == 3 && value.buffer().getByte(value.offset() + SIZE_OF_SHORT) == statusClass;
+    }
+
+    static boolean contains(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] token)
+    {
+        final int last = limit - token.length;
+
+        boolean contains = false;
+        for (int index = offset; index <= last && !contains; index++)
+        {
+            contains = regionMatches(buffer, index, token, false);
+        }
+        return contains;
+    }
+
+    static boolean startsWithIgnoreCase(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] prefix)
+    {
+        return limit - offset >= prefix.length && regionMatches(buffer, offset, prefix, true);
+    }
+
+    static boolean regionMatches(
+        DirectBuffer buffer,
+        int offset,
+        byte[] token,
+        boolean ignoreCase)
+    {
+        boolean matches = true;
+        for (int index = 0; index < token.length && matches; index++)
+        {
+            final byte b = buffer.getByte(offset + index);
+            matches = ignoreCase ? toLowerCase(b) == toLowerCase(token[index]) : b == token[index];
+        }
+        return matches;
+    }
+
+    private static int toLowerCase(
+        int ch)
+    {
+        return ch >= 'A' && ch <= 'Z' ? ch + ('a' - 'A') : ch;
+    }
+}
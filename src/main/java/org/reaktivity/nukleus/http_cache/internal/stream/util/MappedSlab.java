@@ -0,0 +1,212 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.agrona.BitUtil.isPowerOfTwo;
+import static org.agrona.LangUtil.rethrowUnchecked;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * A memory-mapped file for storage of data that does not fit in memory. This is logically segmented
+ * into a set of slots of equal size, in the same way as {@link Slab}, so slot contents can be read
+ * directly from the mapped region without copying onto the heap. Free slots are kept on a stack, as in {@link Slab}.
+ * The file is mapped in segments of at most 1GB, so the total capacity may exceed 2GB.
+ * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
+ */
+public final class MappedSlab implements SizedBufferPool
+{
+    private static final int MAXIMUM_SEGMENT_CAPACITY = 1 << 30;
+
+    private final MutableDirectBuffer slotBuffer = new UnsafeBuffer(new byte[0]);
+
+    private final int slotCapacity;
+    private final int bitsPerSlot;
+    private final int bitsPerSegment;
+    private final int segmentMask;
+    private final int totalSlots;
+    private final MappedByteBuffer[] segments;
+    private final UnsafeBuffer[] segmentBuffers;
+    private final BitSet used;
+    private final int[] freeSlots;
+    private final int[] availableSlots;
+
+    public MappedSlab(
+        Path path,
+        long totalCapacity,
+        int slotCapacity)
+    {
+        if (!isPowerOfTwo(totalCapacity))
+        {
+            throw new IllegalArgumentException("totalCapacity is not a power of 2");
+        }
+        if (!isPowerOfTwo(slotCapacity))
+        {
+            throw new IllegalArgumentException("slotCapacity is not a power of 2");
+        }
+        if (slotCapacity > totalCapacity)
+        {
+            throw new IllegalArgumentException("slotCapacity exceeds totalCapacity");
+        }
+        if (totalCapacity / slotCapacity > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("totalCapacity has too many slots");
+        }
+
+        final int segmentCapacity = (int) Math.min(totalCapacity, MAXIMUM_SEGMENT_CAPACITY);
+        final int segmentCount = (int) (totalCapacity / segmentCapacity);
+
+        this.slotCapacity = slotCapacity;
+        this.bitsPerSlot = Integer.numberOfTrailingZeros(slotCapacity);
+        this.bitsPerSegment = Integer.numberOfTrailingZeros(segmentCapacity) - bitsPerSlot;
+        this.segmentMask = (segmentCapacity >> bitsPerSlot) - 1;
+        this.totalSlots = (int) (totalCapacity / slotCapacity);
+        this.segments = new MappedByteBuffer[segmentCount];
+        this.segmentBuffers = new UnsafeBuffer[segmentCount];
+        this.used = new BitSet(totalSlots);
+        this.freeSlots = new int[totalSlots];
+        this.availableSlots = new int[] { totalSlots };
+
+        for (int slot = 0; slot < totalSlots; slot++)
+        {
+            freeSlots[totalSlots - 1 - slot] = slot;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE))
+        {
+            for (int i = 0; i < segmentCount; i++)
+            {
+                segments[i] = channel.map(READ_WRITE, (long) i * segmentCapacity, segmentCapacity);
+                segmentBuffers[i] = new UnsafeBuffer(segments[i]);
+            }
+        }
+        catch (IOException ex)
+        {
+            rethrowUnchecked(ex);
+        }
+    }
+
+    public int availableSlots()
+    {
+        return availableSlots[0];
+    }
+
+    @Override
+    public int acquiredSlots()
+    {
+        return totalSlots - availableSlots[0];
+    }
+
+    @Override
+    public int totalSlots()
+    {
+        return totalSlots;
+    }
+
+    @Override
+    public int slotCapacity()
+    {
+        return slotCapacity;
+    }
+
+    @Override
+    public int acquire(
+        long streamId)
+    {
+        if (availableSlots[0] == 0)
+        {
+            return NO_SLOT;
+        }
+        final int slot = freeSlots[--availableSlots[0]];
+        assert !used.get(slot);
+        used.set(slot);
+
+        return slot;
+    }
+
+    @Override
+    public MutableDirectBuffer buffer(
+        int slot)
+    {
+        return buffer(slot, 0);
+    }
+
+    @Override
+    public ByteBuffer byteBuffer(
+        int slot)
+    {
+        assert used.get(slot);
+        final int slotOffset = (slot & segmentMask) << bitsPerSlot;
+        final ByteBuffer slotByteBuffer = segments[slot >> bitsPerSegment].duplicate();
+        slotByteBuffer.position(slotOffset);
+        slotByteBuffer.limit(slotOffset + slotCapacity);
+        return slotByteBuffer;
+    }
+
+    @Override
+    public MutableDirectBuffer buffer(
+        int slot,
+        int offset)
+    {
+        assert used.get(slot);
+        final UnsafeBuffer segmentBuffer = segmentBuffers[slot >> bitsPerSegment];
+        final long slotAddressOffset = segmentBuffer.addressOffset() + ((slot & segmentMask) << bitsPerSlot);
+        slotBuffer.wrap(slotAddressOffset + offset, slotCapacity);
+        return slotBuffer;
+    }
+
+    @Override
+    public void release(
+        int slot)
+    {
+        assert used.get(slot);
+        used.clear(slot);
+        freeSlots[availableSlots[0]++] = slot;
+    }
+
+    @Override
+    public MappedSlab duplicate()
+    {
+        return new MappedSlab(this);
+    }
+
+    private MappedSlab(
+        MappedSlab that)
+    {
+        this.slotCapacity = that.slotCapacity;
+        this.bitsPerSlot = that.bitsPerSlot;
+        this.bitsPerSegment = that.bitsPerSegment;
+        this.segmentMask = that.segmentMask;
+        this.totalSlots = that.totalSlots;
+        this.segments = that.segments;
+        this.segmentBuffers = that.segmentBuffers;
+        this.used = that.used;
+        this.freeSlots = that.freeSlots;
+        this.availableSlots = that.availableSlots;
+    }
+}
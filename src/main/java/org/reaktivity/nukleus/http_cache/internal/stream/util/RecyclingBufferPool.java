@@ -0,0 +1,159 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.ByteBuffer.allocateDirect;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.function.LongConsumer;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * A pool of off-heap slots for temporary storage of request headers. Slot buffers are taken from a bounded
+ * stack of idle buffers on acquire and returned to it on release, leaving the buffers beyond that bound to
+ * their cleaner, so the memory held is bounded by the concurrent requests rather than by the maximum.
+ * Free slots are kept on a stack, most recently released first.
+ * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
+ */
+public final class RecyclingBufferPool implements SizedBufferPool
+{
+    private final MutableDirectBuffer slotBuffer = new UnsafeBuffer(new byte[0]);
+
+    private final int slotCapacity;
+    private final MutableDirectBuffer[] buffers;
+    private final BitSet used;
+    private final int[] freeSlots;
+    private final MutableDirectBuffer[] idleBuffers;
+    private final LongConsumer occupancy;
+
+    private int availableSlots;
+    private int idleBufferCount;
+
+    public RecyclingBufferPool(
+        int slotCount,
+        int idleCount,
+        int slotCapacity,
+        LongConsumer occupancy)
+    {
+        this.slotCapacity = slotCapacity;
+        this.buffers = new MutableDirectBuffer[slotCount];
+        this.used = new BitSet(slotCount);
+        this.freeSlots = new int[slotCount];
+        this.idleBuffers = new MutableDirectBuffer[Math.min(idleCount, slotCount)];
+        this.occupancy = occupancy;
+        this.availableSlots = slotCount;
+
+        for (int slot = 0; slot < slotCount; slot++)
+        {
+            freeSlots[slotCount - 1 - slot] = slot;
+        }
+    }
+
+    @Override
+    public int slotCapacity()
+    {
+        return slotCapacity;
+    }
+
+    @Override
+    public int acquiredSlots()
+    {
+        return buffers.length - availableSlots;
+    }
+
+    @Override
+    public int totalSlots()
+    {
+        return buffers.length;
+    }
+
+    @Override
+    public int acquire(
+        long streamId)
+    {
+        if (availableSlots == 0)
+        {
+            return NO_SLOT;
+        }
+
+        final int slot = freeSlots[--availableSlots];
+        assert !used.get(slot);
+        used.set(slot);
+
+        buffers[slot] = idleBufferCount != 0 ? idleBuffers[--idleBufferCount] : new UnsafeBuffer(allocateDirect(slotCapacity));
+        occupancy.accept(1);
+
+        return slot;
+    }
+
+    @Override
+    public MutableDirectBuffer buffer(
+        int slot)
+    {
+        assert used.get(slot);
+        return buffers[slot];
+    }
+
+    @Override
+    public ByteBuffer byteBuffer(
+        int slot)
+    {
+        assert used.get(slot);
+        final ByteBuffer byteBuffer = buffers[slot].byteBuffer();
+        byteBuffer.clear();
+        return byteBuffer;
+    }
+
+    @Override
+    public MutableDirectBuffer buffer(
+        int slot,
+        int offset)
+    {
+        assert used.get(slot);
+        final MutableDirectBuffer buffer = buffers[slot];
+        slotBuffer.wrap(buffer.addressOffset() + offset, slotCapacity - offset);
+        return slotBuffer;
+    }
+
+    @Override
+    public void release(
+        int slot)
+    {
+        if (slot != NO_SLOT)
+        {
+            assert used.get(slot);
+            used.clear(slot);
+            freeSlots[availableSlots++] = slot;
+
+            final MutableDirectBuffer buffer = buffers[slot];
+            buffers[slot] = null;
+            if (idleBufferCount < idleBuffers.length)
+            {
+                idleBuffers[idleBufferCount++] = buffer;
+            }
+            occupancy.accept(-1);
+        }
+    }
+
+    @Override
+    public RecyclingBufferPool duplicate()
+    {
+        return this;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.FNV_OFFSET_BASIS;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.FNV_PRIME;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.hashShort;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.mix64;
+
+import org.agrona.DirectBuffer;
+
+/*
+ * Streams the :scheme, :authority and :path bytes once, producing both the request hash keyed by
+ * authorization scope and the hash of scheme://authority/path without query, so no request URL is built.
+ */
+public final class RequestKeyHasher
+{
+    private long hash;
+    private long hashWithoutQuery;
+    private boolean query;
+
+    private long requestHash;
+    private int requestHashWithoutQuery;
+
+    public RequestKeyHasher hash(
+        short authorizationScope,
+        HttpHeadersIndex headers)
+    {
+        hash = hashShort(FNV_OFFSET_BASIS, authorizationScope);
+        hashWithoutQuery = FNV_OFFSET_BASIS;
+        query = false;
+
+        hashValue(headers.value(HttpHeadersIndex.SCHEME));
+        hashWithoutQuery = hashSeparator(hashWithoutQuery);
+        hashValue(headers.value(HttpHeadersIndex.AUTHORITY));
+        hashValue(headers.value(HttpHeadersIndex.PATH));
+
+        requestHash = mix64(hash);
+        requestHashWithoutQuery = (int) mix64(hashWithoutQuery);
+        return this;
+    }
+
+    public long requestHash()
+    {
+        return requestHash;
+    }
+
+    public int requestHashWithoutQuery()
+    {
+        return requestHashWithoutQuery;
+    }
+
+    /*
+     * Hash of scheme://authority/path without query, matching requestHashWithoutQuery for the same request,
+     * for Link header targets that are only available as Strings.
+     */
+    public static int requestHashWithoutQuery(
+        String scheme,
+        String authority,
+        String path)
+    {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hashChars(hash, scheme);
+        hash = hashSeparator(hash);
+        hash = hashChars(hash, authority);
+        for (int index = 0; index < path.length() && path.charAt(index) != '?' && path.charAt(index) != '#'; index++)
+        {
+            hash = (hash ^ (path.charAt(index) & 0xff)) * FNV_PRIME;
+        }
+        return (int) mix64(hash);
+    }
+
+    private void hashValue(
+        DirectBuffer value)
+    {
+        int length = -1;
+        if (value != null)
+        {
+            length = value.capacity();
+            for (int index = 0; index < length; index++)
+            {
+                final int b = value.getByte(index) & 0xff;
+                hash = (hash ^ b) * FNV_PRIME;
+                query |= b == '?' || b == '#';
+                hashWithoutQuery = query ? hashWithoutQuery : (hashWithoutQuery ^ b) * FNV_PRIME;
+            }
+        }
+
+        // length terminates each value, so bytes cannot shift between adjacent values
+        hash = hashShort(hash, (short) length);
+    }
+
+    private static long hashChars(
+        long hash,
+        String value)
+    {
+        if (value != null)
+        {
+            for (int index = 0; index < value.length(); index++)
+            {
+                hash = (hash ^ (value.charAt(index) & 0xff)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static long hashSeparator(
+        long hash)
+    {
+        hash = (hash ^ ':') * FNV_PRIME;
+        hash = (hash ^ '/') * FNV_PRIME;
+        return (hash ^ '/') * FNV_PRIME;
+    }
+}
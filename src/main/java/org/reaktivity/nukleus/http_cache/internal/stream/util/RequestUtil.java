@@ -15,19 +15,71 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.stream.util;
 
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.AUTHORITY;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.PATH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.SCHEME;
+
+import java.util.function.Predicate;
+
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.String8FW;
+
 public final class RequestUtil
 {
+    static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final String8FW SCHEME_NAME = new String8FW(SCHEME);
+    private static final String8FW AUTHORITY_NAME = new String8FW(AUTHORITY);
+    private static final String8FW PATH_NAME = new String8FW(PATH);
+
+    private static final Predicate<HttpHeaderFW> HAS_SCHEME = h -> SCHEME_NAME.equals(h.name());
+    private static final Predicate<HttpHeaderFW> HAS_AUTHORITY = h -> AUTHORITY_NAME.equals(h.name());
+    private static final Predicate<HttpHeaderFW> HAS_PATH = h -> PATH_NAME.equals(h.name());
+
     public static short authorizationScope(
         long authorization)
     {
         return (short) (authorization >>> 48);
     }
 
-    public static int requestHash(
-        short authorizationScope,
-        int requestURLHash)
+    public static boolean matchesRequestKey(
+        Array32FW<HttpHeaderFW> headers,
+        Array32FW<HttpHeaderFW> otherHeaders)
+    {
+        return matchesValue(headers, otherHeaders, HAS_SCHEME) &&
+               matchesValue(headers, otherHeaders, HAS_AUTHORITY) &&
+               matchesValue(headers, otherHeaders, HAS_PATH);
+    }
+
+    private static boolean matchesValue(
+        Array32FW<HttpHeaderFW> headers,
+        Array32FW<HttpHeaderFW> otherHeaders,
+        Predicate<HttpHeaderFW> hasName)
+    {
+        final HttpHeaderFW header = headers.matchFirst(hasName);
+        final HttpHeaderFW otherHeader = otherHeaders.matchFirst(hasName);
+        return header == null ? otherHeader == null : otherHeader != null && header.value().equals(otherHeader.value());
+    }
+
+    static long hashShort(
+        long hash,
+        short value)
+    {
+        hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+        return (hash ^ ((value >>> 8) & 0xff)) * FNV_PRIME;
+    }
+
+    static long mix64(
+        long hash)
     {
-        return 31 * authorizationScope + requestURLHash;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
     }
 
     private RequestUtil()
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static org.agrona.BitUtil.isPowerOfTwo;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
+import org.agrona.MutableDirectBuffer;
+
+/**
+ * A set of {@link Slab}s with slots of different sizes, so that small data does not consume a full slot.
+ * Size classes shrink by a factor of 4 from the largest slot capacity, for example 16KB, 4KB, 1KB and 256B.
+ * The largest class is given half of the total capacity, each smaller class half of the remainder,
+ * and the smallest class the rest.
+ * Slot ids encode the size class in the high bits, and {@link #acquiredSlots()} is reported in units of
+ * the largest slot capacity, so it is comparable with a {@link Slab} of equal total and slot capacity.
+ * {@link #acquiredSlots(int)} counts the slots of each class able to hold a capacity instead, so a full
+ * class shows even while other classes have room.
+ * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
+ */
+public final class SizeClassSlab implements SizedBufferPool
+{
+    private static final int CLASS_SHIFT = 28;
+    private static final int SLOT_MASK = (1 << CLASS_SHIFT) - 1;
+    private static final int MAXIMUM_CLASSES = 8;
+
+    private final Slab[] classes;
+    private final LongConsumer[] occupancy;
+    private final int slotCapacity;
+    private final long[] acquiredCapacity;
+
+    public SizeClassSlab(
+        int totalCapacity,
+        int slotCapacity,
+        int classCount,
+        IntFunction<LongConsumer> supplyOccupancy)
+    {
+        if (classCount < 1 || classCount > MAXIMUM_CLASSES)
+        {
+            throw new IllegalArgumentException("classCount is not between 1 and " + MAXIMUM_CLASSES);
+        }
+        if (!isPowerOfTwo(slotCapacity) || slotCapacity >> ((classCount - 1) << 1) == 0)
+        {
+            throw new IllegalArgumentException("slotCapacity is too small for classCount");
+        }
+
+        this.classes = new Slab[classCount];
+        this.occupancy = new LongConsumer[classCount];
+        this.slotCapacity = slotCapacity;
+        this.acquiredCapacity = new long[1];
+
+        int remainingCapacity = totalCapacity;
+        for (int i = classCount - 1; i >= 0; i--)
+        {
+            final int classCapacity = i != 0 ? remainingCapacity >> 1 : remainingCapacity;
+            final int classSlotCapacity = slotCapacity >> ((classCount - 1 - i) << 1);
+            classes[i] = new Slab(classCapacity, classSlotCapacity);
+            occupancy[i] = supplyOccupancy.apply(classSlotCapacity);
+            remainingCapacity -= classCapacity;
+        }
+    }
+
+    @Override
+    public int slotCapacity()
+    {
+        return slotCapacity;
+    }
+
+    @Override
+    public int slotCapacity(
+        int slot)
+    {
+        return classes[slot >>> CLASS_SHIFT].slotCapacity();
+    }
+
+    @Override
+    public int acquiredSlots()
+    {
+        return (int) ((acquiredCapacity[0] + slotCapacity - 1) / slotCapacity);
+    }
+
+    @Override
+    public int totalSlots()
+    {
+        return totalSlots(0);
+    }
+
+    /*
+     * Slots of the classes that can hold the requested capacity, since acquire falls back to larger classes.
+     */
+    @Override
+    public int totalSlots(
+        int minimumCapacity)
+    {
+        int totalSlots = 0;
+        for (int i = 0; i < classes.length; i++)
+        {
+            final Slab slab = classes[i];
+            totalSlots += slab.slotCapacity() >= minimumCapacity ? slab.totalSlots() : 0;
+        }
+        return totalSlots;
+    }
+
+    @Override
+    public int acquiredSlots(
+        int minimumCapacity)
+    {
+        int acquiredSlots = 0;
+        for (int i = 0; i < classes.length; i++)
+        {
+            final Slab slab = classes[i];
+            acquiredSlots += slab.slotCapacity() >= minimumCapacity ? slab.acquiredSlots() : 0;
+        }
+        return acquiredSlots;
+    }
+
+    @Override
+    public int acquire(
+        long streamId)
+    {
+        return acquire(streamId, slotCapacity);
+    }
+
+    @Override
+    public int acquire(
+        long streamId,
+        int minimumCapacity)
+    {
+        int slot = NO_SLOT;
+
+        for (int i = 0; i < classes.length && slot == NO_SLOT; i++)
+        {
+            final Slab slab = classes[i];
+            if (slab.slotCapacity() >= minimumCapacity)
+            {
+                final int classSlot = slab.acquire(streamId);
+                if (classSlot != NO_SLOT)
+                {
+                    slot = (i << CLASS_SHIFT) | classSlot;
+                    acquiredCapacity[0] += slab.slotCapacity();
+                    occupancy[i].accept(1);
+                }
+            }
+        }
+
+        return slot;
+    }
+
+    @Override
+    public MutableDirectBuffer buffer(
+        int slot)
+    {
+        return classes[slot >>> CLASS_SHIFT].buffer(slot & SLOT_MASK);
+    }
+
+    @Override
+    public ByteBuffer byteBuffer(
+        int slot)
+    {
+        return classes[slot >>> CLASS_SHIFT].byteBuffer(slot & SLOT_MASK);
+    }
+
+    @Override
+    public MutableDirectBuffer buffer(
+        int slot,
+        int offset)
+    {
+        return classes[slot >>> CLASS_SHIFT].buffer(slot & SLOT_MASK, offset);
+    }
+
+    @Override
+    public void release(
+        int slot)
+    {
+        final int classIndex = slot >>> CLASS_SHIFT;
+        final Slab slab = classes[classIndex];
+        slab.release(slot & SLOT_MASK);
+        acquiredCapacity[0] -= slab.slotCapacity();
+        occupancy[classIndex].accept(-1);
+    }
+
+    @Override
+    public SizedBufferPool duplicate()
+    {
+        return new SizeClassSlab(this);
+    }
+
+    private SizeClassSlab(
+        SizeClassSlab that)
+    {
+        this.classes = new Slab[that.classes.length];
+        for (int i = 0; i < classes.length; i++)
+        {
+            classes[i] = that.classes[i].duplicate();
+        }
+        this.occupancy = that.occupancy;
+        this.slotCapacity = that.slotCapacity;
+        this.acquiredCapacity = that.acquiredCapacity;
+    }
+}
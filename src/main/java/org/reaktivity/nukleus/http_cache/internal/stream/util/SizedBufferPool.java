@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import org.reaktivity.nukleus.buffer.BufferPool;
+
+/**
+ * A {@link BufferPool} that may hold slots of different capacities.
+ * Pools with slots of equal size satisfy any minimum capacity up to {@link #slotCapacity()}.
+ */
+public interface SizedBufferPool extends BufferPool
+{
+    /**
+     * Acquires a slot with at least the requested capacity
+     * @param streamId - Id of the stream acquiring the slot
+     * @param minimumCapacity - Minimum capacity of the slot in bytes
+     * @return Id of the acquired slot, or {@link #NO_SLOT} if no slot of sufficient capacity is available
+     */
+    default int acquire(
+        long streamId,
+        int minimumCapacity)
+    {
+        return minimumCapacity <= slotCapacity() ? acquire(streamId) : NO_SLOT;
+    }
+
+    /**
+     * @param slot - Id of a previously acquired slot
+     * @return Capacity of the slot in bytes
+     */
+    default int slotCapacity(
+        int slot)
+    {
+        return slotCapacity();
+    }
+
+    /**
+     * @return Number of slots in the pool, whether acquired or not
+     */
+    int totalSlots();
+
+    /**
+     * @param minimumCapacity - Minimum capacity of the slot in bytes
+     * @return Number of slots with at least the requested capacity, whether acquired or not
+     */
+    default int totalSlots(
+        int minimumCapacity)
+    {
+        return minimumCapacity <= slotCapacity() ? totalSlots() : 0;
+    }
+
+    /**
+     * @param minimumCapacity - Minimum capacity of the slot in bytes
+     * @return Number of acquired slots with at least the requested capacity
+     */
+    default int acquiredSlots(
+        int minimumCapacity)
+    {
+        return minimumCapacity <= slotCapacity() ? acquiredSlots() : 0;
+    }
+
+    @Override
+    SizedBufferPool duplicate();
+}
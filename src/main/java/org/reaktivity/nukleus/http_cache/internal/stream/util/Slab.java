@@ -21,27 +21,27 @@ import java.nio.ByteBuffer;
 import java.util.BitSet;
 
 import org.agrona.MutableDirectBuffer;
-import org.agrona.collections.Hashing;
 import org.agrona.concurrent.UnsafeBuffer;
-import org.reaktivity.nukleus.buffer.BufferPool;
 
 /**
  * A chunk of shared memory for temporary storage of data. This is logically segmented into a set of
  * slots of equal size. Methods are provided for acquiring a slot, getting a slabBuffer that can be used
  * to store data in it, and releasing the slot once it is no longer needed.
+ * Free slots are kept on a stack, so acquiring and releasing a slot and counting acquired slots take constant time.
  * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
  */
 @Deprecated
-public class Slab implements BufferPool
+public class Slab implements SizedBufferPool
 {
     private final MutableDirectBuffer slotBuffer = new UnsafeBuffer(new byte[0]);
 
     private final int slotCapacity;
     private final int bitsPerSlot;
-    private final int mask;
+    private final int totalSlots;
     private final MutableDirectBuffer slabBuffer;
     private final ByteBuffer slotByteBuffer;
     private final BitSet used;
+    private final int[] freeSlots;
     private final int[] availableSlots;
 
     public Slab(
@@ -62,17 +62,28 @@ public class Slab implements BufferPool
         }
         this.slotCapacity = slotCapacity;
         this.bitsPerSlot = Integer.numberOfTrailingZeros(slotCapacity);
-        int totalSlots = slotCapacity != 0 ? totalCapacity / slotCapacity : 0;
-        this.mask = totalSlots - 1;
+        this.totalSlots = slotCapacity != 0 ? totalCapacity / slotCapacity : 0;
         this.slabBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(totalCapacity));
         this.slotByteBuffer = slabBuffer.byteBuffer().duplicate();
         this.used = new BitSet(totalSlots);
+        this.freeSlots = new int[totalSlots];
         this.availableSlots = new int[] { totalSlots };
+
+        for (int slot = 0; slot < totalSlots; slot++)
+        {
+            freeSlots[totalSlots - 1 - slot] = slot;
+        }
     }
 
     public int acquiredSlots()
     {
-        return used.cardinality();
+        return totalSlots - availableSlots[0];
+    }
+
+    @Override
+    public int totalSlots()
+    {
+        return totalSlots;
     }
 
     @Override
@@ -89,13 +100,9 @@ public class Slab implements BufferPool
         {
             return NO_SLOT;
         }
-        int slot = Hashing.hash(streamId, mask);
-        while (used.get(slot))
-        {
-            slot = ++slot & mask;
-        }
+        final int slot = freeSlots[--availableSlots[0]];
+        assert !used.get(slot);
         used.set(slot);
-        availableSlots[0]--;
 
         return slot;
     }
@@ -143,11 +150,11 @@ public class Slab implements BufferPool
     {
         assert used.get(slot);
         used.clear(slot);
-        availableSlots[0]++;
+        freeSlots[availableSlots[0]++] = slot;
     }
 
     @Override
-    public BufferPool duplicate()
+    public Slab duplicate()
     {
         return new Slab(this);
     }
@@ -156,8 +163,9 @@ public class Slab implements BufferPool
         Slab that)
     {
         this.availableSlots = that.availableSlots;
+        this.freeSlots = that.freeSlots;
         this.bitsPerSlot = that.bitsPerSlot;
-        this.mask = that.mask;
+        this.totalSlots = that.totalSlots;
         this.slabBuffer = that.slabBuffer;
         this.slotCapacity = that.slotCapacity;
         this.used = that.used;
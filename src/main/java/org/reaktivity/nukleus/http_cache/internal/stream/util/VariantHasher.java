@@ -0,0 +1,153 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static org.agrona.BitUtil.SIZE_OF_BYTE;
+import static org.agrona.BitUtil.SIZE_OF_SHORT;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.FNV_OFFSET_BASIS;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.FNV_PRIME;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.RequestUtil.mix64;
+
+import java.util.function.Consumer;
+
+import org.agrona.DirectBuffer;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.String16FW;
+import org.reaktivity.nukleus.http_cache.internal.types.String8FW;
+
+/*
+ * Hash of the request header values named by Vary, tokenizing both the Vary value and the header values
+ * on commas over their characters and bytes, with surrounding whitespace removed, so that equivalent
+ * requests select the same variant of the primary request hash without allocating.
+ */
+public final class VariantHasher
+{
+    private final Consumer<HttpHeaderFW> hashHeader = this::hashIfNamed;
+
+    private String varyBy;
+    private int nameOffset;
+    private int nameLimit;
+    private long hash;
+
+    public long variantHash(
+        long primaryHash,
+        String varyBy,
+        Array32FW<HttpHeaderFW> headers)
+    {
+        this.varyBy = varyBy;
+        this.hash = FNV_OFFSET_BASIS ^ primaryHash;
+
+        final int length = varyBy.length();
+        for (int offset = 0; offset <= length; offset = nameLimit + 1)
+        {
+            nameLimit = offset;
+            while (nameLimit < length && varyBy.charAt(nameLimit) != ',')
+            {
+                nameLimit++;
+            }
+            nameOffset = offset;
+
+            headers.forEach(hashHeader);
+            hash = (hash ^ 0x101) * FNV_PRIME;
+        }
+
+        this.varyBy = null;
+        return mix64(hash);
+    }
+
+    private void hashIfNamed(
+        HttpHeaderFW header)
+    {
+        if (isNamed(header.name()))
+        {
+            final String16FW value = header.value();
+            hashElements(value.buffer(), value.offset() + SIZE_OF_SHORT, value.limit());
+        }
+    }
+
+    private boolean isNamed(
+        String8FW name)
+    {
+        int start = nameOffset;
+        while (start < nameLimit && isWhitespace(varyBy.charAt(start)))
+        {
+            start++;
+        }
+        int last = nameLimit;
+        while (last > start && isWhitespace(varyBy.charAt(last - 1)))
+        {
+            last--;
+        }
+
+        final DirectBuffer buffer = name.buffer();
+        final int offset = name.offset() + SIZE_OF_BYTE;
+
+        boolean named = name.sizeof() - SIZE_OF_BYTE == last - start;
+        for (int index = 0; index < last - start && named; index++)
+        {
+            named = toLowerCase(buffer.getByte(offset + index)) == toLowerCase(varyBy.charAt(start + index));
+        }
+        return named;
+    }
+
+    private void hashElements(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        while (offset <= limit)
+        {
+            int end = offset;
+            while (end < limit && buffer.getByte(end) != ',')
+            {
+                end++;
+            }
+
+            int start = offset;
+            while (start < end && isWhitespace(buffer.getByte(start)))
+            {
+                start++;
+            }
+            int last = end;
+            while (last > start && isWhitespace(buffer.getByte(last - 1)))
+            {
+                last--;
+            }
+
+            for (int index = start; index < last; index++)
+            {
+                hash = (hash ^ (buffer.getByte(index) & 0xff)) * FNV_PRIME;
+            }
+
+            // separator outside the byte range, so elements cannot shift between adjacent values
+            hash = (hash ^ 0x100) * FNV_PRIME;
+            offset = end + 1;
+        }
+    }
+
+    private static boolean isWhitespace(
+        int ch)
+    {
+        return ch == ' ' || ch == '\t';
+    }
+
+    private static int toLowerCase(
+        int ch)
+    {
+        return ch >= 'A' && ch <= 'Z' ? ch + ('a' - 'A') : ch;
+    }
+}
@@ -15,34 +15,39 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.stream.util;
 
-import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.RESPONSE_IS_STALE;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader.getPreferWait;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader.isPreferWait;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader.isPreferenceApplied;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CACHE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CONTENT_LENGTH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CONTENT_RANGE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CONTENT_TYPE;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.ETAG;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_NONE_MATCH;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.PREFERENCE_APPLIED;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.RETRY_AFTER;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.STATUS;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.WARNING;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.HAS_CACHE_CONTROL;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.HAS_EMULATED_PROTOCOL_STACK;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_CACHE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_EMULATED_PROTOCOL_STACK;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_IF_NONE_MATCH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_PREFER;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_SURROGATE_CONTROL;
 
 import java.util.function.Consumer;
 import java.util.function.ToIntFunction;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControl;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpStatus;
-import org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader;
-import org.reaktivity.nukleus.http_cache.internal.proxy.cache.SurrogateControl;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
 import org.reaktivity.nukleus.http_cache.internal.types.Array32FW.Builder;
 import org.reaktivity.nukleus.http_cache.internal.types.Flyweight;
@@ -73,9 +78,13 @@ public class Writer
     private final AbortFW.Builder abortRW = new AbortFW.Builder();
     private final SignalFW.Builder signalRW = new SignalFW.Builder();
     private final CacheControl cacheControlParser = new CacheControl();
+    private final CacheControlParser surrogateControlParser = new CacheControlParser();
+    private final Array32FW.Builder<HttpHeaderFW.Builder, HttpHeaderFW> partialHeadersRW =
+        new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW());
 
     private final RouteManager router;
     private final MutableDirectBuffer writeBuffer;
+    private final MutableDirectBuffer partialHeadersBuffer;
     private final int httpTypeId;
 
     public Writer(
@@ -85,6 +94,7 @@ public class Writer
     {
         this.router = router;
         this.writeBuffer = writeBuffer;
+        this.partialHeadersBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
         this.httpTypeId = supplyTypeId.applyAsInt("http");
     }
 
@@ -133,7 +143,7 @@ public class Writer
         Array32FW<HttpHeaderFW> responseHeaders,
         Array32FW<HttpHeaderFW> requestHeaders,
         String etag,
-        boolean isStale,
+        String warning,
         long traceId)
     {
         Consumer<Builder<HttpHeaderFW.Builder, HttpHeaderFW>> mutator =
@@ -141,7 +151,7 @@ public class Writer
                                              responseHeaders,
                                              requestHeaders,
                                              etag,
-                                             isStale);
+                                             warning);
 
         final BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
                                      .routeId(routeId)
@@ -153,14 +163,58 @@ public class Writer
         receiver.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
     }
 
+    public void doHttpPartialResponseWithUpdatedHeaders(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        Array32FW<HttpHeaderFW> responseHeaders,
+        Array32FW<HttpHeaderFW> requestHeaders,
+        String etag,
+        String warning,
+        String contentType,
+        String contentRange,
+        long contentLength,
+        long traceId)
+    {
+        partialHeadersRW.wrap(partialHeadersBuffer, 0, partialHeadersBuffer.capacity());
+        partialHeadersRW.item(header -> header.name(STATUS).value(HttpStatus.PARTIAL_CONTENT_206));
+        responseHeaders.forEach(h ->
+        {
+            final String name = h.name().asString();
+            if (!STATUS.equals(name) &&
+                !CONTENT_LENGTH.equals(name) &&
+                !CONTENT_RANGE.equals(name) &&
+                !(contentType != null && CONTENT_TYPE.equals(name)))
+            {
+                partialHeadersRW.item(header -> header.name(h.name()).value(h.value()));
+            }
+        });
+
+        if (contentType != null)
+        {
+            partialHeadersRW.item(header -> header.name(CONTENT_TYPE).value(contentType));
+        }
+
+        if (contentRange != null)
+        {
+            partialHeadersRW.item(header -> header.name(CONTENT_RANGE).value(contentRange));
+        }
+
+        partialHeadersRW.item(header -> header.name(CONTENT_LENGTH).value(Long.toString(contentLength)));
+
+        final Array32FW<HttpHeaderFW> partialHeaders = partialHeadersRW.build();
+        doHttpResponseWithUpdatedHeaders(receiver, routeId, streamId, partialHeaders, requestHeaders, etag, warning, traceId);
+    }
+
     private void updateResponseHeaders(
         Builder<HttpHeaderFW.Builder, HttpHeaderFW> builder,
         Array32FW<HttpHeaderFW> responseHeaders,
         Array32FW<HttpHeaderFW> requestHeaders,
         String etag,
-        boolean isStale)
+        String warning)
     {
-        final int staleWhileRevalidate = SurrogateControl.getSurrogateFreshnessExtension(responseHeaders);
+        final int staleWhileRevalidate =
+            surrogateControlParser.parse(responseHeaders, HAS_SURROGATE_CONTROL).freshnessExtension();
         final boolean hasPreferWait = isPreferWait(requestHeaders);
         final boolean isEmulatedProtocolStack = requestHeaders.anyMatch(HAS_EMULATED_PROTOCOL_STACK);
         responseHeaders.forEach(h ->
@@ -201,9 +255,9 @@ public class Writer
             builder.item(header -> header.name("cache-control").value(value));
         }
 
-        if (isStale)
+        if (warning != null)
         {
-            builder.item(header -> header.name(WARNING).value(RESPONSE_IS_STALE));
+            builder.item(header -> header.name(WARNING).value(warning));
         }
     }
 
@@ -434,7 +488,8 @@ public class Writer
         Array32FW<HttpHeaderFW> responseHeaders,
         String etag)
     {
-        final int staleWhileRevalidate = SurrogateControl.getSurrogateFreshnessExtension(responseHeaders);
+        final int staleWhileRevalidate =
+            surrogateControlParser.parse(responseHeaders, HAS_SURROGATE_CONTROL).freshnessExtension();
         doH2PushPromise(acceptReply,
                         routeId,
                         streamId,
@@ -531,11 +586,11 @@ public class Writer
         {
             builder.item(header -> header.name("cache-control").value("max-age=0"));
         }
-        if (!requestHeaders.anyMatch(PreferHeader.PREFER_HEADER_NAME))
+        if (!requestHeaders.anyMatch(HAS_PREFER))
         {
             builder.item(header -> header.name("prefer").value("wait=" + freshnessExtension));
         }
-        if (!requestHeaders.anyMatch(h -> HttpHeaders.IF_NONE_MATCH.equals(h.name().asString())))
+        if (!requestHeaders.anyMatch(HAS_IF_NONE_MATCH))
         {
             builder.item(header -> header.name(IF_NONE_MATCH).value(etag));
         }
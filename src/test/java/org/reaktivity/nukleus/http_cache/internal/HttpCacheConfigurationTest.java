@@ -18,8 +18,18 @@ package org.reaktivity.nukleus.http_cache.internal;
 import static org.junit.Assert.assertEquals;
 import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_ALLOWED_CACHE_PERCENTAGE;
 import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_CAPACITY;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_DISK_CAPACITY;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_DISK_PATH;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_ETAG_PREFIX;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_EXPIRY_GRACE;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_IDLE_REQUESTS;
 import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_MAXIMUM_REQUESTS;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_REFRESH_AHEAD;
 import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_SLOT_CAPACITY;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_SLOT_CLASSES;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_SNAPSHOT_INTERVAL;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_SNAPSHOT_PATH;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration.HTTP_CACHE_STALE_IF_ERROR;
 
 import org.junit.Test;
 
@@ -27,17 +37,37 @@ public class HttpCacheConfigurationTest
 {
     // needed by test annotations
     public static final String HTTP_CACHE_MAXIMUM_REQUESTS_NAME = "nukleus.http_cache.maximum.requests";
+    public static final String HTTP_CACHE_IDLE_REQUESTS_NAME = "nukleus.http_cache.idle.requests";
     public static final String HTTP_CACHE_CAPACITY_NAME = "nukleus.http_cache.capacity";
     public static final String HTTP_CACHE_SLOT_CAPACITY_NAME = "nukleus.http_cache.slot.capacity";
+    public static final String HTTP_CACHE_SLOT_CLASSES_NAME = "nukleus.http_cache.slot.classes";
     public static final String HTTP_CACHE_ALLOWED_CACHE_PERCENTAGE_NAME = "nukleus.http_cache.allowed.cache.percentage";
+    public static final String HTTP_CACHE_DISK_CAPACITY_NAME = "nukleus.http_cache.disk.capacity";
+    public static final String HTTP_CACHE_DISK_PATH_NAME = "nukleus.http_cache.disk.path";
+    public static final String HTTP_CACHE_SNAPSHOT_PATH_NAME = "nukleus.http_cache.snapshot.path";
+    public static final String HTTP_CACHE_SNAPSHOT_INTERVAL_NAME = "nukleus.http_cache.snapshot.interval";
+    public static final String HTTP_CACHE_EXPIRY_GRACE_NAME = "nukleus.http_cache.expiry.grace";
+    public static final String HTTP_CACHE_STALE_IF_ERROR_NAME = "nukleus.http_cache.stale.if.error";
+    public static final String HTTP_CACHE_REFRESH_AHEAD_NAME = "nukleus.http_cache.refresh.ahead";
+    public static final String HTTP_CACHE_ETAG_PREFIX_NAME = "nukleus.http_cache.etag.prefix";
 
     @Test
     public void shouldVerifyConstants() throws Exception
     {
         assertEquals(HTTP_CACHE_MAXIMUM_REQUESTS.name(), HTTP_CACHE_MAXIMUM_REQUESTS_NAME);
+        assertEquals(HTTP_CACHE_IDLE_REQUESTS.name(), HTTP_CACHE_IDLE_REQUESTS_NAME);
         assertEquals(HTTP_CACHE_CAPACITY.name(), HTTP_CACHE_CAPACITY_NAME);
         assertEquals(HTTP_CACHE_SLOT_CAPACITY.name(), HTTP_CACHE_SLOT_CAPACITY_NAME);
+        assertEquals(HTTP_CACHE_SLOT_CLASSES.name(), HTTP_CACHE_SLOT_CLASSES_NAME);
         assertEquals(HTTP_CACHE_ALLOWED_CACHE_PERCENTAGE.name(), HTTP_CACHE_ALLOWED_CACHE_PERCENTAGE_NAME);
+        assertEquals(HTTP_CACHE_DISK_CAPACITY.name(), HTTP_CACHE_DISK_CAPACITY_NAME);
+        assertEquals(HTTP_CACHE_DISK_PATH.name(), HTTP_CACHE_DISK_PATH_NAME);
+        assertEquals(HTTP_CACHE_SNAPSHOT_PATH.name(), HTTP_CACHE_SNAPSHOT_PATH_NAME);
+        assertEquals(HTTP_CACHE_SNAPSHOT_INTERVAL.name(), HTTP_CACHE_SNAPSHOT_INTERVAL_NAME);
+        assertEquals(HTTP_CACHE_EXPIRY_GRACE.name(), HTTP_CACHE_EXPIRY_GRACE_NAME);
+        assertEquals(HTTP_CACHE_STALE_IF_ERROR.name(), HTTP_CACHE_STALE_IF_ERROR_NAME);
+        assertEquals(HTTP_CACHE_REFRESH_AHEAD.name(), HTTP_CACHE_REFRESH_AHEAD_NAME);
+        assertEquals(HTTP_CACHE_ETAG_PREFIX.name(), HTTP_CACHE_ETAG_PREFIX_NAME);
 
     }
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.bench;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControl;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.SurrogateControl;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@OutputTimeUnit(SECONDS)
+public class CacheControlBM
+{
+    private static final String CACHE_CONTROL = "public, max-age=60, s-maxage=120, stale-while-revalidate=5";
+    private static final String SURROGATE_CONTROL = "max-age=30+2147483647, x-protected";
+
+    private final DirectBuffer cacheControlBytes = new UnsafeBuffer(CACHE_CONTROL.getBytes(US_ASCII));
+    private final DirectBuffer surrogateControlBytes = new UnsafeBuffer(SURROGATE_CONTROL.getBytes(US_ASCII));
+    private final CacheControlParser parser = new CacheControlParser();
+
+    @Benchmark
+    public int cacheControlRegex()
+    {
+        final CacheControl cacheControl = new CacheControl().parse(CACHE_CONTROL);
+        return Integer.parseInt(cacheControl.getValue("max-age")) + Integer.parseInt(cacheControl.getValue("s-maxage"));
+    }
+
+    @Benchmark
+    public int cacheControlBytes()
+    {
+        parser.parse(cacheControlBytes, 0, cacheControlBytes.capacity());
+        return parser.maxAge() + parser.sMaxAge();
+    }
+
+    @Benchmark
+    public int surrogateControlRegex()
+    {
+        return SurrogateControl.getSurrogateAge(SURROGATE_CONTROL) +
+            SurrogateControl.getSurrogateFreshnessExtension(SURROGATE_CONTROL);
+    }
+
+    @Benchmark
+    public int surrogateControlBytes()
+    {
+        parser.parse(surrogateControlBytes, 0, surrogateControlBytes.capacity());
+        return parser.maxAge() + parser.freshnessExtension();
+    }
+
+    public static void main(
+        String[] args) throws Exception
+    {
+        Options opt = new OptionsBuilder()
+                .include(CacheControlBM.class.getSimpleName())
+                .forks(0)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.bench;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.BitSet;
+
+import org.agrona.collections.Hashing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.Slab;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@OutputTimeUnit(SECONDS)
+public class SlabBM
+{
+    private static final int TOTAL_CAPACITY = 64 * 1024 * 1024;
+    private static final int SLOT_CAPACITY = 1024;
+    private static final int TOTAL_SLOTS = TOTAL_CAPACITY / SLOT_CAPACITY;
+
+    @Param({ "50", "90", "99" })
+    public int fill;
+
+    private Slab slab;
+    private ProbingSlots probingSlots;
+    private int[] slabSlots;
+    private int[] probingSlotsSlots;
+    private int acquired;
+    private int cursor;
+    private long streamId;
+
+    @Setup(Level.Trial)
+    public void init()
+    {
+        slab = new Slab(TOTAL_CAPACITY, SLOT_CAPACITY);
+        probingSlots = new ProbingSlots(TOTAL_SLOTS);
+
+        acquired = TOTAL_SLOTS * fill / 100;
+        slabSlots = new int[acquired];
+        probingSlotsSlots = new int[acquired];
+
+        for (int i = 0; i < acquired; i++)
+        {
+            slabSlots[i] = slab.acquire(streamId);
+            probingSlotsSlots[i] = probingSlots.acquire(streamId);
+            streamId++;
+        }
+    }
+
+    @Benchmark
+    public int slab()
+    {
+        final int index = nextIndex();
+        slab.release(slabSlots[index]);
+        slabSlots[index] = slab.acquire(streamId++);
+        return slab.acquiredSlots();
+    }
+
+    @Benchmark
+    public int probingSlots()
+    {
+        final int index = nextIndex();
+        probingSlots.release(probingSlotsSlots[index]);
+        probingSlotsSlots[index] = probingSlots.acquire(streamId++);
+        return probingSlots.acquiredSlots();
+    }
+
+    private int nextIndex()
+    {
+        final int index = cursor;
+        cursor = (cursor + 7919) % acquired;
+        return index;
+    }
+
+    public static void main(
+        String[] args) throws Exception
+    {
+        Options opt = new OptionsBuilder()
+                .include(SlabBM.class.getSimpleName())
+                .forks(0)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    // previous Slab allocation, hashing the stream id and probing for a free slot
+    private static final class ProbingSlots
+    {
+        private final int mask;
+        private final BitSet used;
+
+        private int availableSlots;
+
+        ProbingSlots(
+            int totalSlots)
+        {
+            this.mask = totalSlots - 1;
+            this.used = new BitSet(totalSlots);
+            this.availableSlots = totalSlots;
+        }
+
+        int acquiredSlots()
+        {
+            return used.cardinality();
+        }
+
+        int acquire(
+            long streamId)
+        {
+            if (availableSlots == 0)
+            {
+                return -1;
+            }
+            int slot = Hashing.hash(streamId, mask);
+            while (used.get(slot))
+            {
+                slot = ++slot & mask;
+            }
+            used.set(slot);
+            availableSlots--;
+
+            return slot;
+        }
+
+        void release(
+            int slot)
+        {
+            used.clear(slot);
+            availableSlots++;
+        }
+    }
+}
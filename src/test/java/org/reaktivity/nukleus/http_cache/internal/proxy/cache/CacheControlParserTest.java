@@ -0,0 +1,108 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_MAX_AGE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_MAX_STALE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_NO_CACHE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_NO_STORE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_PRIVATE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_PUBLIC;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_S_MAXAGE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.DIRECTIVE_X_PROTECTED;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControlParser.NO_VALUE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersView.HAS_CACHE_CONTROL;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+
+public class CacheControlParserTest
+{
+    private final CacheControlParser parser = new CacheControlParser();
+
+    @Test
+    public void shouldParseDirectiveValues()
+    {
+        parse("public, Max-Age=60, s-maxage=\"120\", max-stale, stale-while-revalidate=5");
+
+        Assert.assertTrue(parser.contains(DIRECTIVE_PUBLIC));
+        Assert.assertFalse(parser.contains(DIRECTIVE_PRIVATE));
+        Assert.assertEquals(60, parser.maxAge());
+        Assert.assertEquals(120, parser.sMaxAge());
+        Assert.assertTrue(parser.contains(DIRECTIVE_MAX_STALE));
+        Assert.assertEquals(NO_VALUE, parser.maxStale());
+        Assert.assertEquals(NO_VALUE, parser.minFresh());
+        Assert.assertEquals(5, parser.staleWhileRevalidate());
+    }
+
+    @Test
+    public void shouldParseSurrogateFreshnessExtension()
+    {
+        parse("max-age=30+2147483647, x-protected");
+
+        Assert.assertEquals(30, parser.maxAge());
+        Assert.assertEquals(2147483647, parser.freshnessExtension());
+        Assert.assertTrue(parser.contains(DIRECTIVE_X_PROTECTED));
+
+        parse("max-age=1");
+
+        Assert.assertEquals(1, parser.maxAge());
+        Assert.assertEquals(NO_VALUE, parser.freshnessExtension());
+        Assert.assertFalse(parser.contains(DIRECTIVE_X_PROTECTED));
+    }
+
+    @Test
+    public void shouldTrackDirectiveOrder()
+    {
+        parse("no-cache, max-age=10, private=\"set-cookie, x-token\"");
+
+        Assert.assertTrue(parser.precedes(DIRECTIVE_NO_STORE | DIRECTIVE_NO_CACHE, DIRECTIVE_MAX_AGE | DIRECTIVE_S_MAXAGE));
+        Assert.assertTrue(parser.contains(DIRECTIVE_PRIVATE));
+        Assert.assertFalse(parser.contains(DIRECTIVE_NO_STORE));
+
+        parse("max-age=10, no-store");
+
+        Assert.assertFalse(parser.precedes(DIRECTIVE_NO_STORE | DIRECTIVE_NO_CACHE, DIRECTIVE_MAX_AGE | DIRECTIVE_S_MAXAGE));
+    }
+
+    @Test
+    public void shouldCombineRepeatedHeaders()
+    {
+        final Array32FW<HttpHeaderFW> headers = new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[256]), 0, 256)
+            .item(h -> h.name("cache-control").value("max-age=15"))
+            .item(h -> h.name(":status").value("200"))
+            .item(h -> h.name("cache-control").value("public, no-store"))
+            .build();
+
+        parser.parse(headers, HAS_CACHE_CONTROL);
+
+        Assert.assertEquals(15, parser.maxAge());
+        Assert.assertTrue(parser.contains(DIRECTIVE_PUBLIC));
+        Assert.assertFalse(parser.precedes(DIRECTIVE_NO_STORE | DIRECTIVE_NO_CACHE, DIRECTIVE_PUBLIC | DIRECTIVE_MAX_AGE));
+    }
+
+    private void parse(
+        String value)
+    {
+        final byte[] bytes = value.getBytes(US_ASCII);
+        parser.parse(new UnsafeBuffer(bytes), 0, bytes.length);
+    }
+}
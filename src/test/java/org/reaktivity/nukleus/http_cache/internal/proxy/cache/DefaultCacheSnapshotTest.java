@@ -0,0 +1,161 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.DefaultCacheEntry.NUM_OF_HEADER_SLOTS;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reaktivity.nukleus.http_cache.internal.HttpCacheCounters;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.CoarseClock;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.Slab;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
+
+public class DefaultCacheSnapshotTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, AtomicLong> values = new ConcurrentHashMap<>();
+    private final HttpCacheCounters counters = new HttpCacheCounters(
+        n -> values.computeIfAbsent(n, k -> new AtomicLong())::incrementAndGet,
+        n -> values.computeIfAbsent(n, k -> new AtomicLong())::addAndGet);
+
+    @Test
+    public void shouldRestoreWrittenEntries() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("snapshot");
+        final DefaultCache cache = newCache();
+        storeEntry(cache, 1L, "\"1\"", "hello world");
+
+        new DefaultCacheSnapshot(cache, path, 1000L, counters).write();
+
+        final DefaultCache restored = newCache();
+        new DefaultCacheSnapshot(restored, path, 1000L, counters).restore();
+
+        final DefaultCacheEntry entry = restored.get(1L);
+        Assert.assertNotNull(entry);
+        Assert.assertTrue(entry.isResponseCompleted());
+        Assert.assertEquals("\"1\"", entry.etag());
+        Assert.assertEquals("max-age=60", HttpHeadersUtil.getHeader(entry.getCachedResponseHeaders(), "cache-control"));
+        Assert.assertEquals("/path/1", HttpHeadersUtil.getHeader(entry.getRequestHeaders(), ":path"));
+        Assert.assertEquals("hello world", responsePayload(entry));
+        Assert.assertEquals(1L, values.get("http-cache.snapshot.entries.restored").get());
+    }
+
+    @Test
+    public void shouldWriteSnapshotOverSeveralCycles() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("snapshot");
+        final DefaultCache cache = newCache();
+        for (long requestHash = 1L; requestHash <= 20L; requestHash++)
+        {
+            storeEntry(cache, requestHash, "\"" + requestHash + "\"", "payload " + requestHash);
+        }
+
+        final DefaultCacheSnapshot snapshot = new DefaultCacheSnapshot(cache, path, 1000L, counters);
+        Assert.assertEquals(0, snapshot.writeIfNecessary(1000L));
+        Assert.assertEquals(0, snapshot.writeIfNecessary(1500L));
+        Assert.assertEquals(1, snapshot.writeIfNecessary(2000L));
+
+        cache.purge(20L);
+        Assert.assertEquals(16, snapshot.writeIfNecessary(2000L));
+        Assert.assertFalse(Files.exists(path));
+        Assert.assertEquals(3, snapshot.writeIfNecessary(2000L));
+        Assert.assertTrue(Files.exists(path));
+        Assert.assertEquals(0, snapshot.writeIfNecessary(2500L));
+
+        final DefaultCache restored = newCache();
+        new DefaultCacheSnapshot(restored, path, 1000L, counters).restore();
+
+        for (long requestHash = 1L; requestHash < 20L; requestHash++)
+        {
+            Assert.assertEquals("payload " + requestHash, responsePayload(restored.get(requestHash)));
+        }
+        Assert.assertNull(restored.get(20L));
+    }
+
+    private DefaultCache newCache()
+    {
+        final ToIntFunction<String> supplyTypeId = t -> 0;
+        return new DefaultCache(null,
+                                new UnsafeBuffer(new byte[0x4000]),
+                                new Slab(1 << 20, 0x4000),
+                                null,
+                                counters,
+                                new CoarseClock(System::currentTimeMillis),
+                                supplyTypeId,
+                                100,
+                                60000L,
+                                0,
+                                0,
+                                0);
+    }
+
+    private static void storeEntry(
+        DefaultCache cache,
+        long requestHash,
+        String etag,
+        String payload)
+    {
+        final String path = "/path/" + requestHash;
+        final Array32FW<HttpHeaderFW> requestHeaders = new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[256]), 0, 256)
+            .item(h -> h.name(":method").value("GET"))
+            .item(h -> h.name(":path").value(path))
+            .item(h -> h.name(":authority").value("localhost:8080"))
+            .build();
+        final Array32FW<HttpHeaderFW> responseHeaders = new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[256]), 0, 256)
+            .item(h -> h.name(":status").value("200"))
+            .item(h -> h.name("cache-control").value("max-age=60"))
+            .item(h -> h.name("etag").value(etag))
+            .build();
+        final byte[] bytes = payload.getBytes(UTF_8);
+        final OctetsFW data = new OctetsFW.Builder()
+            .wrap(new UnsafeBuffer(new byte[bytes.length]), 0, bytes.length)
+            .set(bytes)
+            .build();
+
+        final DefaultCacheEntry entry = cache.supply(requestHash, requestHash, (short) 0, (int) requestHash);
+        Assert.assertTrue(entry.storeRequestHeaders(requestHeaders));
+        Assert.assertTrue(entry.storeResponseHeaders(responseHeaders));
+        Assert.assertTrue(entry.storeResponseData(data));
+        entry.setEtag(etag);
+        entry.setResponseCompleted(true);
+    }
+
+    private static String responsePayload(
+        DefaultCacheEntry entry)
+    {
+        final int slot = entry.getResponseSlots().getInt(NUM_OF_HEADER_SLOTS);
+        return entry.responsePool().buffer(slot).getStringWithoutLengthUtf8(0, entry.responseSize());
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FrequencySketchTest
+{
+
+    @Test
+    public void shouldEstimateFrequency()
+    {
+        FrequencySketch sketch = new FrequencySketch(16, () -> 0L);
+
+        Assert.assertEquals(0, sketch.frequency(42L));
+        sketch.increment(42L);
+        sketch.increment(42L);
+        sketch.increment(42L);
+        Assert.assertEquals(3, sketch.frequency(42L));
+        Assert.assertTrue(sketch.frequency(7L) < sketch.frequency(42L));
+    }
+
+    @Test
+    public void shouldSaturateFrequency()
+    {
+        FrequencySketch sketch = new FrequencySketch(1024, () -> 0L);
+
+        for (int i = 0; i < 20; i++)
+        {
+            sketch.increment(42L);
+        }
+        Assert.assertEquals(15, sketch.frequency(42L));
+    }
+
+    @Test
+    public void shouldHalveFrequencyOnReset()
+    {
+        AtomicLong resets = new AtomicLong();
+        FrequencySketch sketch = new FrequencySketch(16, resets::incrementAndGet);
+
+        for (int i = 0; i < 8; i++)
+        {
+            sketch.increment(42L);
+        }
+
+        for (long key = 1000; resets.get() == 0; key++)
+        {
+            sketch.increment(key);
+        }
+
+        Assert.assertEquals(1, resets.get());
+        Assert.assertTrue(sketch.frequency(42L) <= 5);
+    }
+}
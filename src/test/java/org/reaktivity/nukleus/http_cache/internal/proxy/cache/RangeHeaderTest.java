@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.collections.IntArrayList;
+import org.junit.Test;
+
+public class RangeHeaderTest
+{
+    private final IntArrayList ranges = new IntArrayList();
+
+    @Test
+    public void shouldParseSingleRange()
+    {
+        assertEquals(1, RangeHeader.parseRanges("bytes=0-99", 1000, ranges));
+        assertEquals(0, ranges.getInt(0));
+        assertEquals(100, ranges.getInt(1));
+    }
+
+    @Test
+    public void shouldParseOpenAndSuffixRanges()
+    {
+        assertEquals(2, RangeHeader.parseRanges("bytes=900-, -50", 1000, ranges));
+        assertEquals(900, ranges.getInt(0));
+        assertEquals(1000, ranges.getInt(1));
+        assertEquals(950, ranges.getInt(2));
+        assertEquals(1000, ranges.getInt(3));
+    }
+
+    @Test
+    public void shouldClampRangeToLength()
+    {
+        assertEquals(1, RangeHeader.parseRanges("bytes=500-99999999999", 1000, ranges));
+        assertEquals(500, ranges.getInt(0));
+        assertEquals(1000, ranges.getInt(1));
+    }
+
+    @Test
+    public void shouldNotSatisfyRangeBeyondLength()
+    {
+        assertEquals(0, RangeHeader.parseRanges("bytes=1000-1999", 1000, ranges));
+    }
+
+    @Test
+    public void shouldIgnoreInvalidRanges()
+    {
+        assertEquals(-1, RangeHeader.parseRanges("items=0-9", 1000, ranges));
+        assertEquals(-1, RangeHeader.parseRanges("bytes=9-0", 1000, ranges));
+        assertEquals(-1, RangeHeader.parseRanges("bytes=a-b", 1000, ranges));
+        assertEquals(-1, RangeHeader.parseRanges("bytes=", 1000, ranges));
+    }
+
+    @Test
+    public void shouldParseContentRange()
+    {
+        assertEquals(100, RangeHeader.contentRangeStart("bytes 100-199/1000"));
+        assertEquals(1000, RangeHeader.contentRangeLength("bytes 100-199/1000"));
+        assertEquals(-1, RangeHeader.contentRangeStart("bytes */1000"));
+        assertEquals(-1, RangeHeader.contentRangeLength("bytes 100-199/*"));
+    }
+
+    @Test
+    public void shouldMatchIfRange()
+    {
+        assertTrue(RangeHeader.matchesIfRange(null, "\"abc\"", null));
+        assertTrue(RangeHeader.matchesIfRange("\"abc\"", "\"abc\"", null));
+        assertFalse(RangeHeader.matchesIfRange("\"abc\"", "W/\"abc\"", null));
+        assertTrue(RangeHeader.matchesIfRange("Wed, 21 Oct 2015 07:28:00 GMT", null, "Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertFalse(RangeHeader.matchesIfRange("Wed, 21 Oct 2015 07:28:00 GMT", "\"abc\"", null));
+    }
+}
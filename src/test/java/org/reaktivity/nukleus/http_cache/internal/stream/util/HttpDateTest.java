@@ -0,0 +1,86 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpDate.IMF_FIXDATE_LENGTH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpDate.INVALID_DATE;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpDateTest
+{
+    @Test
+    public void shouldParseImfFixdate()
+    {
+        Assert.assertEquals(784111777000L, HttpDate.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        Assert.assertEquals(1445412480000L, HttpDate.parse("Wed, 21 Oct 2015 07:28:00 GMT"));
+        Assert.assertEquals(951782400000L, HttpDate.parse("Tue, 29 Feb 2000 00:00:00 GMT"));
+    }
+
+    @Test
+    public void shouldRejectOtherDateFormats()
+    {
+        Assert.assertEquals(INVALID_DATE, HttpDate.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+        Assert.assertEquals(INVALID_DATE, HttpDate.parse("Sun Nov  6 08:49:37 1994"));
+        Assert.assertEquals(INVALID_DATE, HttpDate.parse("Sun, 06 Nov 1994 08:49:37 PST"));
+        Assert.assertEquals(INVALID_DATE, HttpDate.parse("Sun, 06 Xyz 1994 08:49:37 GMT"));
+        Assert.assertEquals(INVALID_DATE, HttpDate.parse("120"));
+    }
+
+    @Test
+    public void shouldFormatImfFixdate()
+    {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[IMF_FIXDATE_LENGTH]);
+        final long[] dates = { 0L, 784111777123L, 951782400000L, 1445412480000L, 4102444799000L };
+
+        for (long date : dates)
+        {
+            final int length = HttpDate.format(date, buffer, 0);
+            final String expected = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+                .format(Instant.ofEpochMilli(date).atOffset(ZoneOffset.UTC));
+
+            Assert.assertEquals(expected, buffer.getStringWithoutLengthAscii(0, length));
+            Assert.assertEquals(date / 1000L * 1000L, HttpDate.parse(buffer, 0, length));
+        }
+    }
+
+    @Test
+    public void shouldCacheDatePerSecond()
+    {
+        final long[] time = { 784111777000L };
+        final CoarseClock clock = new CoarseClock(() -> time[0]);
+
+        final String date = clock.date();
+        Assert.assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", date);
+
+        time[0] += 999L;
+        Assert.assertEquals(784111777000L, clock.millis());
+        Assert.assertEquals(784111777999L, clock.update());
+        Assert.assertSame(date, clock.date());
+
+        time[0] += 1L;
+        clock.update();
+        Assert.assertEquals("Sun, 06 Nov 1994 08:49:38 GMT", clock.date());
+        Assert.assertEquals(HttpDate.parse(clock.dateBytes(), 0, IMF_FIXDATE_LENGTH), clock.millis());
+    }
+}
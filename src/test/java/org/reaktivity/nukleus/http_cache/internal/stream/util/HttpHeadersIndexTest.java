@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+
+public class HttpHeadersIndexTest
+{
+
+    @Test
+    public void shouldIndexWellKnownHeaders()
+    {
+        final Array32FW<HttpHeaderFW> headers = new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[512]), 0, 512)
+            .item(h -> h.name(":method").value("GET"))
+            .item(h -> h.name(":path").value("/index.html"))
+            .item(h -> h.name("x-custom").value("no-store"))
+            .item(h -> h.name("cache-control").value("max-age=0, no-cache"))
+            .item(h -> h.name("if-none-match").value("\"a\", \"b\" ,\"c\""))
+            .item(h -> h.name("cache-control").value("no-store"))
+            .build();
+
+        final HttpHeadersIndex index = new HttpHeadersIndex().wrap(headers);
+
+        Assert.assertTrue(index.equals(HttpHeadersIndex.METHOD, "GET".getBytes(US_ASCII)));
+        Assert.assertTrue(index.equalsIgnoreCase(HttpHeadersIndex.METHOD, "get".getBytes(US_ASCII)));
+        Assert.assertEquals("/index.html", index.valueAsString(HttpHeadersIndex.PATH));
+        Assert.assertTrue(index.contains(HttpHeadersIndex.CACHE_CONTROL, "no-cache".getBytes(US_ASCII)));
+        Assert.assertFalse(index.contains(HttpHeadersIndex.CACHE_CONTROL, "no-store".getBytes(US_ASCII)));
+        Assert.assertTrue(index.containsElement(HttpHeadersIndex.IF_NONE_MATCH, "\"b\""));
+        Assert.assertTrue(index.containsElement(HttpHeadersIndex.IF_NONE_MATCH, "\"c\""));
+        Assert.assertFalse(index.containsElement(HttpHeadersIndex.IF_NONE_MATCH, "\"d\""));
+        Assert.assertFalse(index.has(HttpHeadersIndex.AUTHORITY));
+        Assert.assertNull(index.value(HttpHeadersIndex.PREFER));
+
+        final Array32FW<HttpHeaderFW> noHeaders = new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[64]), 0, 64)
+            .build();
+
+        index.wrap(noHeaders);
+        Assert.assertFalse(index.has(HttpHeadersIndex.METHOD));
+    }
+
+    @Test
+    public void shouldParseDateValues()
+    {
+        final Array32FW<HttpHeaderFW> headers = new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[256]), 0, 256)
+            .item(h -> h.name("if-modified-since").value("Wed, 21 Oct 2015 07:28:00 GMT"))
+            .item(h -> h.name("if-unmodified-since").value("yesterday"))
+            .build();
+
+        final HttpHeadersIndex index = new HttpHeadersIndex().wrap(headers);
+
+        Assert.assertEquals(1445412480000L, index.dateValue(HttpHeadersIndex.IF_MODIFIED_SINCE));
+        Assert.assertEquals(HttpDate.INVALID_DATE, index.dateValue(HttpHeadersIndex.IF_UNMODIFIED_SINCE));
+        Assert.assertEquals(HttpDate.INVALID_DATE, index.dateValue(HttpHeadersIndex.IF_RANGE));
+    }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+
+public class HttpHeadersViewTest
+{
+
+    @Test
+    public void shouldMatchHeadersWithoutAllocating()
+    {
+        final Array32FW<HttpHeaderFW> headers = new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[256]), 0, 256)
+            .item(h -> h.name(":status").value("503"))
+            .item(h -> h.name(":method").value("GET"))
+            .item(h -> h.name("cache-control").value("max-age=0, only-if-cached"))
+            .build();
+
+        Assert.assertTrue(headers.anyMatch(HttpHeadersView.HAS_CACHE_CONTROL));
+        Assert.assertTrue(headers.anyMatch(HttpHeadersView.IS_ONLY_IF_CACHED));
+        Assert.assertFalse(headers.anyMatch(HttpHeadersView.HAS_PREFER));
+        Assert.assertTrue(HttpHeadersUtil.hasStatusCode(headers, 503));
+        Assert.assertFalse(HttpHeadersUtil.hasStatusCode(headers, 504));
+        Assert.assertTrue(HttpHeadersUtil.isServerError(headers));
+
+        final HttpHeadersView view = new HttpHeadersView();
+        final DirectBuffer method = view.value(headers, HttpHeadersView.METHOD_NAME);
+        Assert.assertTrue(HttpHeadersView.equalsIgnoreCase(method, "get".getBytes(US_ASCII)));
+        Assert.assertNull(view.value(headers, HttpHeadersView.PREFER_NAME));
+        Assert.assertEquals("max-age=0, only-if-cached", HttpHeadersUtil.getHeader(headers, "Cache-Control"));
+    }
+
+    @Test
+    public void shouldCombineRepeatedHeaderValues()
+    {
+        final Array32FW<HttpHeaderFW> headers = new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[256]), 0, 256)
+            .item(h -> h.name("vary").value("user-agent"))
+            .item(h -> h.name(":status").value("200"))
+            .item(h -> h.name("Vary").value("accept-encoding"))
+            .build();
+
+        Assert.assertEquals("user-agent, accept-encoding", HttpHeadersUtil.getHeader(headers, "vary"));
+        Assert.assertNull(HttpHeadersUtil.getHeader(headers, "etag"));
+    }
+
+}
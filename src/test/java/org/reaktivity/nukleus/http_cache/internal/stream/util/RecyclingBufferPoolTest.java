@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.agrona.MutableDirectBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecyclingBufferPoolTest
+{
+    private final AtomicLong occupancy = new AtomicLong();
+
+    @Test
+    public void shouldReuseIdleBuffersUpToBound()
+    {
+        final RecyclingBufferPool pool = new RecyclingBufferPool(3, 1, 64, occupancy::addAndGet);
+
+        final int slot1 = pool.acquire(1L);
+        final int slot2 = pool.acquire(2L);
+        final MutableDirectBuffer buffer1 = pool.buffer(slot1);
+        Assert.assertEquals(2, pool.acquiredSlots());
+        Assert.assertEquals(2L, occupancy.get());
+
+        pool.release(slot1);
+        pool.release(slot2);
+        Assert.assertEquals(0, pool.acquiredSlots());
+        Assert.assertEquals(0L, occupancy.get());
+
+        final int slot3 = pool.acquire(3L);
+        Assert.assertSame(buffer1, pool.buffer(slot3));
+
+        final int slot4 = pool.acquire(4L);
+        Assert.assertNotSame(buffer1, pool.buffer(slot4));
+        Assert.assertEquals(64, pool.buffer(slot4).capacity());
+    }
+
+    @Test
+    public void shouldNotAcquireBeyondSlotCount()
+    {
+        final RecyclingBufferPool pool = new RecyclingBufferPool(1, 1, 64, occupancy::addAndGet);
+
+        final int slot = pool.acquire(1L);
+        Assert.assertNotEquals(NO_SLOT, slot);
+        Assert.assertEquals(NO_SLOT, pool.acquire(2L));
+
+        pool.release(slot);
+        Assert.assertNotEquals(NO_SLOT, pool.acquire(3L));
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+
+public class RequestKeyHasherTest
+{
+    private final HttpHeadersIndex index = new HttpHeadersIndex();
+    private final RequestKeyHasher hasher = new RequestKeyHasher();
+
+    @Test
+    public void shouldHashRequestWithoutQuery()
+    {
+        hasher.hash((short) 0, index.wrap(requestHeaders("/items?page=2")));
+        final long requestHash = hasher.requestHash();
+        final int requestHashWithoutQuery = hasher.requestHashWithoutQuery();
+
+        hasher.hash((short) 0, index.wrap(requestHeaders("/items")));
+
+        Assert.assertNotEquals(requestHash, hasher.requestHash());
+        Assert.assertEquals(requestHashWithoutQuery, hasher.requestHashWithoutQuery());
+        Assert.assertEquals(requestHashWithoutQuery,
+            RequestKeyHasher.requestHashWithoutQuery("http", "localhost:8080", "/items"));
+        Assert.assertNotEquals(requestHashWithoutQuery,
+            RequestKeyHasher.requestHashWithoutQuery("http", "localhost:8080", "/item"));
+    }
+
+    @Test
+    public void shouldHashAuthorizationScope()
+    {
+        hasher.hash((short) 1, index.wrap(requestHeaders("/items")));
+        final long requestHash = hasher.requestHash();
+        final int requestHashWithoutQuery = hasher.requestHashWithoutQuery();
+
+        hasher.hash((short) 2, index.wrap(requestHeaders("/items")));
+
+        Assert.assertNotEquals(requestHash, hasher.requestHash());
+        Assert.assertEquals(requestHashWithoutQuery, hasher.requestHashWithoutQuery());
+    }
+
+    private static Array32FW<HttpHeaderFW> requestHeaders(
+        String path)
+    {
+        return new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+            .wrap(new UnsafeBuffer(new byte[256]), 0, 256)
+            .item(h -> h.name(":scheme").value("http"))
+            .item(h -> h.name(":method").value("GET"))
+            .item(h -> h.name(":path").value(path))
+            .item(h -> h.name(":authority").value("localhost:8080"))
+            .build();
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SizeClassSlabTest
+{
+
+    @Test
+    public void shouldAcquireSmallestSlotThatFits()
+    {
+        SizeClassSlab slab = new SizeClassSlab(1 << 20, 0x4000, 4, c -> v -> {});
+
+        Assert.assertEquals(256, slab.slotCapacity(slab.acquire(1L, 100)));
+        Assert.assertEquals(1024, slab.slotCapacity(slab.acquire(2L, 600)));
+        Assert.assertEquals(4096, slab.slotCapacity(slab.acquire(3L, 4096)));
+        Assert.assertEquals(0x4000, slab.slotCapacity(slab.acquire(4L)));
+        Assert.assertEquals(NO_SLOT, slab.acquire(5L, 0x4001));
+    }
+
+    @Test
+    public void shouldFallBackToLargerSlotWhenClassIsFull()
+    {
+        SizeClassSlab slab = new SizeClassSlab(0x10000, 0x4000, 2, c -> v -> {});
+
+        for (int i = 0; i < 8; i++)
+        {
+            Assert.assertEquals(0x1000, slab.slotCapacity(slab.acquire(i, 100)));
+        }
+        Assert.assertEquals(0x4000, slab.slotCapacity(slab.acquire(8L, 100)));
+    }
+
+    @Test
+    public void shouldReportAcquiredSlotsInLargestSlotUnits()
+    {
+        SizeClassSlab slab = new SizeClassSlab(1 << 20, 0x4000, 4, c -> v -> {});
+
+        Assert.assertEquals(0, slab.acquiredSlots());
+        int slot = slab.acquire(1L, 100);
+        Assert.assertEquals(1, slab.acquiredSlots());
+        slab.release(slot);
+        Assert.assertEquals(0, slab.acquiredSlots());
+    }
+
+    @Test
+    public void shouldReportClassFullWhileOtherClassesHaveRoom()
+    {
+        SizeClassSlab slab = new SizeClassSlab(0x10000, 0x4000, 2, c -> v -> {});
+
+        Assert.assertEquals(2, slab.totalSlots(0x4000));
+        Assert.assertEquals(10, slab.totalSlots(100));
+
+        slab.acquire(1L);
+        slab.acquire(2L);
+
+        Assert.assertEquals(NO_SLOT, slab.acquire(3L));
+        Assert.assertEquals(2, slab.acquiredSlots(0x4000));
+        Assert.assertEquals(slab.totalSlots(0x4000), slab.acquiredSlots(0x4000));
+        Assert.assertEquals(2, slab.acquiredSlots(100));
+        Assert.assertEquals(0x1000, slab.slotCapacity(slab.acquire(4L, 100)));
+    }
+}
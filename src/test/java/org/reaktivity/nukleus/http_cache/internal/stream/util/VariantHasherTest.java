@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reaktivity.nukleus.http_cache.internal.types.Array32FW;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+
+public class VariantHasherTest
+{
+    private final VariantHasher hasher = new VariantHasher();
+
+    @Test
+    public void shouldHashEquivalentRequestsToSameVariant()
+    {
+        final long variantHash = hasher.variantHash(1L, "accept-encoding, Accept-Language",
+            requestHeaders("gzip, br", "en"));
+
+        Assert.assertEquals(variantHash, hasher.variantHash(1L, "Accept-Encoding,accept-language",
+            requestHeaders(" gzip ,br ", "en")));
+        Assert.assertNotEquals(variantHash, hasher.variantHash(1L, "accept-encoding, accept-language",
+            requestHeaders("gzip", "en")));
+        Assert.assertNotEquals(variantHash, hasher.variantHash(1L, "accept-encoding, accept-language",
+            requestHeaders("gzip, br", null)));
+        Assert.assertNotEquals(variantHash, hasher.variantHash(2L, "accept-encoding, accept-language",
+            requestHeaders("gzip, br", "en")));
+    }
+
+    @Test
+    public void shouldNotShiftElementsBetweenVaryingHeaders()
+    {
+        Assert.assertNotEquals(hasher.variantHash(1L, "accept-encoding, accept-language", requestHeaders("gzip, br", "en")),
+                               hasher.variantHash(1L, "accept-encoding, accept-language", requestHeaders("gzip", "br, en")));
+    }
+
+    private static Array32FW<HttpHeaderFW> requestHeaders(
+        String acceptEncoding,
+        String acceptLanguage)
+    {
+        final Array32FW.Builder<HttpHeaderFW.Builder, HttpHeaderFW> builder =
+            new Array32FW.Builder<>(new HttpHeaderFW.Builder(), new HttpHeaderFW())
+                .wrap(new UnsafeBuffer(new byte[256]), 0, 256)
+                .item(h -> h.name(":method").value("GET"))
+                .item(h -> h.name(":path").value("/index.html"));
+        if (acceptEncoding != null)
+        {
+            builder.item(h -> h.name("accept-encoding").value(acceptEncoding));
+        }
+        if (acceptLanguage != null)
+        {
+            builder.item(h -> h.name("accept-language").value(acceptLanguage));
+        }
+        return builder.build();
+    }
+}
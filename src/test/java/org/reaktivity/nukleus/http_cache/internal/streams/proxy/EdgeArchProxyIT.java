@@ -288,7 +288,7 @@ public class EdgeArchProxyIT
     {
         k3po.finish();
         Thread.sleep(100); // Wait for response to be processed
-        counters.assertExpectedCacheEntries(1);
+        counters.assertExpectedCacheEntries(2);
         counters.assertRequestsSlotsAndRequestGroups(0);
     }
 
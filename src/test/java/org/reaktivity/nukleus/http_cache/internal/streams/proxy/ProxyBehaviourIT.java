@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.rules.RuleChain.outerRule;
 import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfigurationTest.HTTP_CACHE_ALLOWED_CACHE_PERCENTAGE_NAME;
 import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfigurationTest.HTTP_CACHE_CAPACITY_NAME;
+import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfigurationTest.HTTP_CACHE_REFRESH_AHEAD_NAME;
 import static org.reaktivity.nukleus.http_cache.internal.HttpCacheConfigurationTest.HTTP_CACHE_SLOT_CAPACITY_NAME;
 import static org.reaktivity.reaktor.test.ReaktorRule.EXTERNAL_AFFINITY_MASK;
 
@@ -177,7 +178,7 @@ public class ProxyBehaviourIT
     public void shouldPurgeCacheEntryOnFullCache() throws Exception
     {
         k3po.finish();
-        counters.assertExpectedCacheEntries(1);
+        counters.assertExpectedCacheEntries(2);
         counters.assertRequestGroups(0);
     }
 
@@ -196,4 +197,20 @@ public class ProxyBehaviourIT
         counters.assertExpectedCacheEntries(0);
         counters.assertRequestsSlotsAndRequestGroups(1);
     }
+
+    @Test
+    @Configure(name = HTTP_CACHE_REFRESH_AHEAD_NAME, value = "100")
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/refresh.ahead.in.flight/accept/client",
+        "${streams}/refresh.ahead.in.flight/connect/server",
+    })
+    public void shouldServeCachedResponseWhileRefreshAheadIsInFlight() throws Exception
+    {
+        k3po.finish();
+        counters.assertRequests(4);
+        counters.assertResponses(4);
+        counters.assertExpectedCacheEntries(1);
+        counters.assertRequestsSlotsAndRequestGroups(0);
+    }
 }
@@ -171,6 +171,40 @@ public class Rfc7234ProxyIT
         counters.assertRequestsSlotsAndRequestGroups(0);
     }
 
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/serve.head.from.cached.get/accept/client",
+        "${streams}/serve.head.from.cached.get/connect/server",
+    })
+    public void shouldServeHeadFromCachedGet() throws Exception
+    {
+        k3po.finish();
+        counters.assertRequests(2);
+        counters.assertRequestsCacheable(2);
+        counters.assertResponses(2);
+        counters.assertResponsesCached(1);
+        counters.assertExpectedCacheEntries(1);
+        counters.assertRequestsSlotsAndRequestGroups(0);
+    }
+
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/serve.get.from.cached.head/accept/client",
+        "${streams}/serve.get.from.cached.head/connect/server",
+    })
+    public void shouldServeGetFromResponseCachedForHead() throws Exception
+    {
+        k3po.finish();
+        counters.assertRequests(2);
+        counters.assertRequestsCacheable(2);
+        counters.assertResponses(2);
+        counters.assertResponsesCached(1);
+        counters.assertExpectedCacheEntries(1);
+        counters.assertRequestsSlotsAndRequestGroups(0);
+    }
+
     @Test
     @Specification({
         "${route}/proxy/controller",
@@ -683,7 +717,7 @@ public class Rfc7234ProxyIT
         counters.assertRequestsCacheable(2);
         counters.assertResponses(2);
         counters.assertResponsesCached(0);
-        counters.assertExpectedCacheEntries(1);
+        counters.assertExpectedCacheEntries(2);
         counters.assertRequestsSlotsAndRequestGroups(0);
     }
 
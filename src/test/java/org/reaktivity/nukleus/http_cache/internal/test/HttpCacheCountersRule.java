@@ -77,6 +77,11 @@ public class HttpCacheCountersRule implements TestRule
         return reaktor.counter("http-cache.responses.aborted");
     }
 
+    public long responsesStaleIfError()
+    {
+        return reaktor.counter("http-cache.responses.stale.if.error");
+    }
+
     public long promises()
     {
         return reaktor.counter("http-cache.promises");
@@ -184,6 +189,12 @@ public class HttpCacheCountersRule implements TestRule
         assertEquals(expected, responsesAborted());
     }
 
+    public void assertResponsesStaleIfError(
+        int expected)
+    {
+        assertEquals(expected, responsesStaleIfError());
+    }
+
     public void assertPromises(
         int expected)
     {